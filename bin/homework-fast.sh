@@ -0,0 +1,14 @@
+#!/bin/sh
+# Starts the application from the fast-startup build: Spring AOT initializers instead of the runtime
+# configuration processing and the AppCDS archive of the training run instead of loading the classes.
+# Build it first with: mvn -Pfast-startup package
+# Usage: bin/homework-fast.sh path/to/customer.csv path/to/payments.csv
+FAST_STARTUP_DIR="$(cd "$(dirname "$0")/../target/fast-startup" && pwd)" || exit 1
+JAR="$(ls "$FAST_STARTUP_DIR"/*-fast-startup.jar)"
+
+# -Xshare:auto falls back to normal class loading if the archive does not match this JVM or class path
+# the Vector API module enables the vectorized Luhn check, the training run was started with it as well
+exec java -XX:SharedArchiveFile="$FAST_STARTUP_DIR/homework.jsa" -Xshare:auto \
+    --add-modules jdk.incubator.vector \
+    -Dspring.aot.enabled=true -Dfile.encoding=UTF-8 $JAVA_OPTS \
+    -jar "$JAR" "$@"
@@ -0,0 +1,132 @@
+package com.codecool.homework.benchmark;
+
+import com.codecool.homework.dataprocessor.CustomerIndex;
+import com.codecool.homework.dataprocessor.CustomerValidator;
+import com.codecool.homework.dataprocessor.PaymentAggregator;
+import com.codecool.homework.dataprocessor.PaymentTable;
+import com.codecool.homework.dataprocessor.PaymentValidator;
+import com.codecool.homework.dataprocessor.RejectCounters;
+import com.codecool.homework.dataprocessor.ReportBuilder;
+import com.codecool.homework.model.CustomerPaymentSum;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CardNumberBatch;
+import com.codecool.homework.util.CsvFileHandler;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Input files and the results of the earlier stages, so every benchmark measures only its own stage.
+ * The files are generated once per trial into a temporary directory.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+    @Param("100000")
+    public long paymentCount;
+
+    @Param("0.05")
+    public double invalidRatio;
+
+    final CsvFileHandler csvFileHandler = new CsvFileHandler();
+    final DateValidatorForNotIsoFormat dateValidator = new DateValidatorForNotIsoFormat();
+    final ReportBuilder reportBuilder = new ReportBuilder();
+
+    Path directory;
+    File customerFile;
+    File paymentsFile;
+    CustomerIndex customers;
+    PaymentTable payments;
+    List<String> dates;
+    // card numbers of the valid card payments in the layout of CardNumberBatch
+    byte[] cardNumberDigits;
+    int cardNumberCount;
+    PaymentAggregator aggregates;
+    List<CustomerPaymentSum> customerPaymentSums;
+    List<String> report;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("homework-benchmark");
+        customerFile = directory.resolve("customer.csv").toFile();
+        paymentsFile = directory.resolve("payments.csv").toFile();
+        SyntheticDataGenerator.generate(customerFile.toPath(), paymentsFile.toPath(), 99, 99,
+                paymentCount, invalidRatio, 42);
+        customers = readCustomers(this);
+        payments = readPayments(this, new PaymentValidator(customers, dateValidator, new RejectCounters()));
+        dates = new ArrayList<>();
+        csvFileHandler.forEachRow(paymentsFile, row -> dates.add(row.getField(row.getFieldCount() - 1)));
+        List<String> cardNumbers = new ArrayList<>();
+        for (int row = 0; row < payments.size(); row++) {
+            if (payments.isCard(row)) {
+                cardNumbers.add(payments.getCreditOrDebitCardNumber(row));
+            }
+        }
+        cardNumberCount = cardNumbers.size();
+        cardNumberDigits = new byte[cardNumberCount * CardNumberBatch.WIDTH];
+        for (int i = 0; i < cardNumberCount; i++) {
+            String cardNumber = cardNumbers.get(i);
+            int digitsStart = (i + 1) * CardNumberBatch.WIDTH - cardNumber.length();
+            for (int digit = 0; digit < cardNumber.length(); digit++) {
+                cardNumberDigits[digitsStart + digit] = (byte) (cardNumber.charAt(digit) - '0');
+            }
+        }
+        aggregates = reportBuilder.aggregatePayments(payments);
+        customerPaymentSums = reportBuilder.collectCustomerPaymentSums(customers.getCustomers(), aggregates);
+        report = new ArrayList<>(reportBuilder.createReportOfCustomersBySumPayment(customerPaymentSums));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Reads and validates the customer file the same way as the application does.
+     */
+    static CustomerIndex readCustomers(BenchmarkData data) throws IOException {
+        CustomerIndex customers = new CustomerIndex();
+        data.csvFileHandler.forEachRow(data.customerFile, row -> {
+            int key = CustomerIndex.keyOf(row, 0, 1);
+            if (key != CustomerIndex.INVALID_KEY) {
+                customers.markSeen(key);
+            }
+        });
+        CustomerValidator validator = new CustomerValidator(customers, new RejectCounters());
+        data.csvFileHandler.forEachRow(data.customerFile, row -> {
+            if (validator.validate(row) == RejectReason.VALID) {
+                customers.add(CustomerIndex.keyOf(row, 0, 1), validator.createCustomer(row));
+            }
+        });
+        return customers;
+    }
+
+    /**
+     * Reads and validates the payments file on the calling thread.
+     */
+    static PaymentTable readPayments(BenchmarkData data, PaymentValidator validator) throws IOException {
+        PaymentTable payments = new PaymentTable();
+        data.csvFileHandler.forEachRow(data.paymentsFile, row -> {
+            if (validator.validate(row) == RejectReason.VALID) {
+                validator.appendPayment(row, payments);
+            }
+        });
+        return payments;
+    }
+}
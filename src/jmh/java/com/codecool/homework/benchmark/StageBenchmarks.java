@@ -0,0 +1,105 @@
+package com.codecool.homework.benchmark;
+
+import com.codecool.homework.dataprocessor.CustomerIndex;
+import com.codecool.homework.dataprocessor.PaymentAggregator;
+import com.codecool.homework.dataprocessor.PaymentTable;
+import com.codecool.homework.dataprocessor.PaymentValidator;
+import com.codecool.homework.dataprocessor.RejectCounters;
+import com.codecool.homework.util.LuhnChecker;
+import com.codecool.homework.util.ScalarLuhnChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the pipeline stages, one operation is one pass over the whole generated input.
+ * Run with mvn -Pbenchmark test-compile exec:exec, the gc profiler reports the allocation rate of each stage.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class StageBenchmarks {
+    private static final LuhnChecker SCALAR_LUHN_CHECKER = new ScalarLuhnChecker();
+    // the forked JVMs have the Vector API module, so this is the vectorized checker
+    private static final LuhnChecker VECTOR_LUHN_CHECKER = LuhnChecker.create();
+
+    @Benchmark
+    public List<List<String>> readPaymentsAsStrings(BenchmarkData data) throws IOException {
+        return data.csvFileHandler.readCsvData(data.paymentsFile);
+    }
+
+    @Benchmark
+    public long readPaymentRows(BenchmarkData data, Blackhole blackhole) throws IOException {
+        return data.csvFileHandler.forEachRow(data.paymentsFile, row -> blackhole.consume(row.getFieldCount()));
+    }
+
+    @Benchmark
+    public CustomerIndex validateCustomers(BenchmarkData data) throws IOException {
+        return BenchmarkData.readCustomers(data);
+    }
+
+    @Benchmark
+    public PaymentTable validatePayments(BenchmarkData data) throws IOException {
+        return BenchmarkData.readPayments(data,
+                new PaymentValidator(data.customers, data.dateValidator, new RejectCounters()));
+    }
+
+    @Benchmark
+    public void validateDates(BenchmarkData data, Blackhole blackhole) {
+        for (String date : data.dates) {
+            blackhole.consume(data.dateValidator.isValid(date));
+        }
+    }
+
+    @Benchmark
+    public BitSet checkCardNumbersScalar(BenchmarkData data) {
+        BitSet failures = new BitSet(data.cardNumberCount);
+        SCALAR_LUHN_CHECKER.check(data.cardNumberDigits, data.cardNumberCount, failures);
+        return failures;
+    }
+
+    @Benchmark
+    public BitSet checkCardNumbersVectorized(BenchmarkData data) {
+        BitSet failures = new BitSet(data.cardNumberCount);
+        VECTOR_LUHN_CHECKER.check(data.cardNumberDigits, data.cardNumberCount, failures);
+        return failures;
+    }
+
+    @Benchmark
+    public PaymentAggregator aggregatePayments(BenchmarkData data) {
+        return data.reportBuilder.aggregatePayments(data.payments);
+    }
+
+    @Benchmark
+    public Set<String> createReportOfCustomersBySumPayment(BenchmarkData data) {
+        return data.reportBuilder.createReportOfCustomersBySumPayment(data.customerPaymentSums);
+    }
+
+    @Benchmark
+    public List<String> createReportOfTopCustomersByPaymentSum(BenchmarkData data) {
+        return data.reportBuilder.createReportOfTopCustomersByPaymentSum(data.customerPaymentSums, 2);
+    }
+
+    @Benchmark
+    public Set<String> createReportOfWebshopsByPaymentSums(BenchmarkData data) {
+        return data.reportBuilder.createReportOfWebshopsByPaymentSums(data.aggregates);
+    }
+
+    @Benchmark
+    public void writeReport(BenchmarkData data) throws IOException {
+        data.csvFileHandler.writeCsvData(data.report, data.directory.resolve("report01.csv").toString());
+    }
+}
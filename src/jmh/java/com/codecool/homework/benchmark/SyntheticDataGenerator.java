@@ -0,0 +1,198 @@
+package com.codecool.homework.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates realistic customer.csv and payments.csv files for the benchmarks.
+ * The output only depends on the parameters and the seed, so benchmark runs are comparable.
+ *
+ * Run standalone after mvn -Pbenchmark test-compile with:
+ * java -cp target/test-classes com.codecool.homework.benchmark.SyntheticDataGenerator
+ *     customer.csv payments.csv paymentCount [invalidRatio] [seed]
+ */
+public final class SyntheticDataGenerator {
+    private static final String[] FAMILY_NAMES = {"Kovács", "Szabó", "Nagy", "Tóth", "Horváth", "Kiss", "Molnár",
+            "Németh", "Farkas", "Balogh", "Papp", "Takács", "Juhász", "Lakatos", "Mészáros", "Oláh", "Simon", "Rácz",
+            "Fekete", "Szűcs", "Hagyma", "Pézsma", "Török", "Fehér", "Gál"};
+    private static final String[] GIVEN_NAMES = {"János", "István", "László", "József", "Zoltán", "Péter", "Bálint",
+            "Ferenc", "Béla", "Mária", "Erzsébet", "Katalin", "Éva", "Ildikó", "Réka", "Piroska", "Natália", "Zsófia",
+            "Ágnes", "Tünde", "Győző", "Ödön", "Csilla", "Dóra"};
+    private static final String[] CITIES = {"Bp. 1192", "Bp. 1149", "Bp. 1117", "Bp. 1211", "Bp. 1027", "Vecsés 2220",
+            "Debrecen 4025", "Szeged 6720", "Győr 9021", "Pécs 7621", "Székesfehérvár 8000", "Miskolc 3525"};
+    private static final String[] STREETS = {"Kosárfonó u.", "Vizafogó u.", "Káposzta u.", "Toldi u.", "Tűzkő u.",
+            "Lövölde tér", "Boldog u.", "Rákóczi út", "Petőfi u.", "Kossuth Lajos tér", "Dózsa György út", "Fő u."};
+
+    private final SplittableRandom random;
+    private final int webshopCount;
+    private final int customersPerWebshop;
+
+    private SyntheticDataGenerator(long seed, int webshopCount, int customersPerWebshop) {
+        this.random = new SplittableRandom(seed);
+        this.webshopCount = webshopCount;
+        this.customersPerWebshop = customersPerWebshop;
+    }
+
+    /**
+     * Writes a customer file with webshopCount * customersPerWebshop customers and a payments file
+     * with paymentCount payments, of which roughly invalidRatio are invalid in one of the validated ways.
+     *
+     * @param customerFile customer csv file to write
+     * @param paymentsFile payments csv file to write
+     * @param webshopCount number of webshops, at most 99
+     * @param customersPerWebshop number of customers per webshop, at most 99
+     * @param paymentCount number of payment rows
+     * @param invalidRatio ratio of invalid rows in both files, between 0 and 1
+     * @param seed seed of the random generator
+     */
+    public static void generate(Path customerFile, Path paymentsFile, int webshopCount, int customersPerWebshop,
+                                long paymentCount, double invalidRatio, long seed) throws IOException {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(seed, webshopCount, customersPerWebshop);
+        generator.writeCustomers(customerFile, invalidRatio);
+        generator.writePayments(paymentsFile, paymentCount, invalidRatio);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Arguments: customerFile paymentsFile paymentCount [invalidRatio] [seed]");
+            return;
+        }
+        double invalidRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        generate(Path.of(args[0]), Path.of(args[1]), 99, 99, Long.parseLong(args[2]), invalidRatio, seed);
+    }
+
+    private void writeCustomers(Path customerFile, double invalidRatio) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(customerFile, StandardCharsets.UTF_8)) {
+            for (int webshop = 1; webshop <= webshopCount; webshop++) {
+                for (int customer = 1; customer <= customersPerWebshop; customer++) {
+                    String name = pick(FAMILY_NAMES) + " " + pick(GIVEN_NAMES);
+                    String address = pick(CITIES) + " " + pick(STREETS) + " " + (1 + random.nextInt(120));
+                    String row = webshopId(webshop) + ";" + customerId(customer) + ";" + name + ";" + address;
+                    if (random.nextDouble() < invalidRatio) {
+                        row = random.nextBoolean()
+                                ? webshopId(webshop) + ";" + customerId(customer) + ";;" + address
+                                : webshopId(webshop) + ";X" + customer + ";" + name + ";" + address;
+                    }
+                    writer.write(row);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private void writePayments(Path paymentsFile, long paymentCount, double invalidRatio) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(paymentsFile, StandardCharsets.UTF_8)) {
+            StringBuilder row = new StringBuilder(96);
+            for (long i = 0; i < paymentCount; i++) {
+                row.setLength(0);
+                appendValidPayment(row);
+                if (random.nextDouble() < invalidRatio) {
+                    corrupt(row);
+                }
+                writer.append(row);
+                writer.newLine();
+            }
+        }
+    }
+
+    private void appendValidPayment(StringBuilder row) {
+        row.append(webshopId(1 + random.nextInt(webshopCount))).append(';')
+                .append(customerId(1 + random.nextInt(customersPerWebshop))).append(';');
+        boolean card = random.nextInt(100) < 70;
+        row.append(card ? "card" : "transfer").append(';')
+                .append(100 + random.nextInt(150_000)).append(';');
+        if (card) {
+            row.append(';').append(cardNumber()).append(';');
+        } else {
+            row.append(bankAccountNumber()).append(";;");
+        }
+        row.append("2021.");
+        appendTwoDigits(row, 1 + random.nextInt(12)).append('.');
+        appendTwoDigits(row, 1 + random.nextInt(28));
+    }
+
+    /**
+     * Breaks a valid payment row in one of the ways the validation checks.
+     */
+    private void corrupt(StringBuilder row) {
+        String[] fields = row.toString().split(";", -1);
+        switch (random.nextInt(8)) {
+            case 0 -> fields[0] = "W" + fields[0].substring(2);
+            case 1 -> fields[1] = "B" + fields[1].substring(1);
+            case 2 -> fields[2] = "cash";
+            case 3 -> fields[3] = fields[3] + "x";
+            case 4 -> fields[3] = "0";
+            case 5 -> fields[6] = "2021.02.30";
+            // customer ids start from A01, so A00 is never found
+            case 6 -> fields[1] = "A00";
+            default -> {
+                row.setLength(row.lastIndexOf(";"));
+                return;
+            }
+        }
+        row.setLength(0);
+        row.append(String.join(";", fields));
+    }
+
+    private String cardNumber() {
+        int network = random.nextInt(3);
+        String prefix = switch (network) {
+            case 0 -> "4";
+            case 1 -> "5" + (1 + random.nextInt(5));
+            default -> random.nextBoolean() ? "34" : "37";
+        };
+        int length = network == 2 ? 15 : 16;
+        StringBuilder number = new StringBuilder(prefix);
+        while (number.length() < length - 1) {
+            number.append(random.nextInt(10));
+        }
+        return number.append(luhnCheckDigit(number)).toString();
+    }
+
+    private String bankAccountNumber() {
+        int length = random.nextBoolean() ? 16 : 24;
+        StringBuilder number = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            number.append(random.nextInt(10));
+        }
+        return number.toString();
+    }
+
+    private static int luhnCheckDigit(CharSequence digitsWithoutCheckDigit) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digitsWithoutCheckDigit.length() - 1; i >= 0; i--) {
+            int digit = digitsWithoutCheckDigit.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static String webshopId(int webshop) {
+        return appendTwoDigits(new StringBuilder("WS"), webshop).toString();
+    }
+
+    private static String customerId(int customer) {
+        return appendTwoDigits(new StringBuilder("A"), customer).toString();
+    }
+}
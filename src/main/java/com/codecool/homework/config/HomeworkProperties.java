@@ -0,0 +1,144 @@
+package com.codecool.homework.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the data processing read from application.properties with the "homework" prefix.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "homework")
+public class HomeworkProperties {
+    private final Validation validation = new Validation();
+    private final Report report = new Report();
+    private final Rejects rejects = new Rejects();
+    private final Metrics metrics = new Metrics();
+    private final Incremental incremental = new Incremental();
+    private final Daemon daemon = new Daemon();
+    private final Cache cache = new Cache();
+    private final Batch batch = new Batch();
+    private final Spill spill = new Spill();
+    private final Query query = new Query();
+    private final Pipeline pipeline = new Pipeline();
+
+    @Getter
+    @Setter
+    public static class Validation {
+        // number of threads validating the payments file in chunks, 0 means all available processors
+        // shared by the jobs running at the same time in batch mode
+        private int threads;
+    }
+
+    @Getter
+    @Setter
+    public static class Report {
+        // number of customers in top.csv
+        private int topK = 2;
+        // number of customers per webshop in top_webshop.csv, 0 means the report is not created
+        private int topKPerWebshop;
+        // precision of the amount percentiles in report04.csv, 1 to 10 bits, at most 2^-bits off the exact amount
+        private int amountPrecisionBits = 7;
+    }
+
+    @Getter
+    @Setter
+    public static class Rejects {
+        // machine-readable csv of the rejected rows
+        private String file = "rejects.csv";
+        // maximum number of rejects waiting for the background writer
+        private int bufferCapacity = 65536;
+        // maximum number of rejects logged to application.log per reason, negative means no limit
+        private long logLimitPerReason = -1;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+        // JSON summary of the stage measurements of a run, written next to the reports
+        private String summaryFile = "run-summary.json";
+    }
+
+    @Getter
+    @Setter
+    public static class Incremental {
+        // only validate the payments appended since the checkpoint of the previous run
+        private boolean enabled;
+        // checkpoint and aggregated sums of the payments processed so far
+        private String stateFile = "payments.checkpoint";
+    }
+
+    @Getter
+    @Setter
+    public static class Daemon {
+        // stay resident and process the payment files arriving in the inbox
+        private boolean enabled;
+        // directory watched for payments csv files
+        private String inbox = "inbox";
+        // directory of the reports, one subdirectory per processed file
+        private String outbox = "outbox";
+        // time a new file has to stay unchanged before it is processed
+        private long settleMillis = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        // reuse the validated data of unchanged input files instead of parsing them again
+        private boolean enabled;
+        // directory of the cache files, one per pair of input files
+        private String directory = ".homework-cache";
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        // process the file pairs listed in the manifest given as argument
+        private boolean enabled;
+        // number of jobs processed at the same time
+        private int jobs = 4;
+        // directory of the reports, one subdirectory per job
+        private String outputDirectory = "batch-output";
+        // JSON summary of the jobs and the throughput of the batch, written to the output directory
+        private String summaryFile = "batch-summary.json";
+    }
+
+    @Getter
+    @Setter
+    public static class Spill {
+        // keep the valid payments in bounded memory, spilling them to partition files when over the budget
+        private boolean enabled;
+        // memory of the buffered payments, a partition is spilled when its share is full
+        private DataSize memoryBudget = DataSize.ofMegabytes(64);
+        // number of spill files, at least 1, the payments are partitioned by customer
+        private int partitions = 16;
+        // directory of the spill files, they are deleted once the payments are aggregated
+        private String directory = ".homework-spill";
+    }
+
+    @Getter
+    @Setter
+    public static class Query {
+        // serve queries about the aggregates of the last finished run over HTTP
+        private boolean enabled;
+        // address to listen on, only local clients by default
+        private String host = "localhost";
+        // port to listen on, 0 means any free port
+        private int port = 8085;
+        // number of threads answering the queries
+        private int threads = 2;
+    }
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        // aggregate the payments while validating and create the reports at the same time
+        private boolean staged = true;
+        // maximum number of validated chunks of 1 MB waiting for the aggregation
+        private int queueCapacity = 16;
+    }
+}
@@ -0,0 +1,269 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.util.CsvFileNames;
+import com.codecool.homework.util.Json;
+import com.codecool.homework.util.PipelineMetrics;
+import com.codecool.homework.util.RejectSink;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Processes the customer and payments file pairs listed in a manifest concurrently in one JVM.
+ * Every job writes its reports, rejects and run summary to its own subdirectory of the batch output directory,
+ * a failing job is logged and does not stop the others.
+ * The throughput of every job and of the whole batch is logged and written to the batch summary.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchProcessor {
+    // for console logging the steps of the application
+    private static final Logger CONSOLE_LOGGER = Logger.getLogger("com.codecool.homework.console.logger");
+    private static final char SEPARATOR = ';';
+    private static final String COMMENT = "#";
+
+    private final PaymentPipeline paymentPipeline;
+    private final HomeworkProperties properties;
+
+    /**
+     * Runs the jobs of a manifest and waits for all of them.
+     * Each line of the manifest is customer file;payments file, optionally followed by ;name of the job.
+     * Relative paths are resolved against the directory of the manifest, empty lines and lines starting with #
+     * are skipped. Without a name the job is named after its payments file.
+     *
+     * @param manifestFile manifest of the file pairs
+     * @param logger Logger for the human-readable log of the rejects
+     *
+     * @return results of the jobs in the order of the manifest.
+     */
+    public List<JobResult> run(File manifestFile, Logger logger) throws IOException, InterruptedException {
+        HomeworkProperties.Batch batch = properties.getBatch();
+        Path outputRoot = Path.of(batch.getOutputDirectory());
+        Files.createDirectories(outputRoot);
+        List<Job> jobs = readManifest(manifestFile.toPath(), outputRoot);
+        int threads = Math.max(1, Math.min(batch.getJobs(), jobs.size()));
+        CONSOLE_LOGGER.info(String.format("Processing %d jobs of %s on %d threads, reports are written to %s.",
+                jobs.size(), manifestFile, threads, outputRoot.toAbsolutePath()));
+        Instant startTime = Instant.now();
+        long startNanos = System.nanoTime();
+        List<Future<JobResult>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Job job : jobs) {
+                futures.add(executor.submit(() -> process(job, logger)));
+            }
+            List<JobResult> results = new ArrayList<>();
+            for (Future<JobResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException unexpected) {
+                    // process catches the failures of a job, this is only reached on errors like OutOfMemoryError
+                    throw new IllegalStateException("Batch job failed unexpectedly.", unexpected.getCause());
+                }
+            }
+            long wallNanos = System.nanoTime() - startNanos;
+            logBatch(results, wallNanos);
+            writeSummary(outputRoot.resolve(batch.getSummaryFile()), startTime, wallNanos, results);
+            CONSOLE_LOGGER.info(String.format("Batch summary \"%s\" successfully created.", batch.getSummaryFile()));
+            return results;
+        } finally {
+            // interrupted while waiting, the running jobs are interrupted too
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the jobs of the manifest. Lines which cannot be turned into a job become jobs failing with the reason,
+     * so they are reported together with the other jobs.
+     */
+    private List<Job> readManifest(Path manifest, Path outputRoot) throws IOException {
+        Path baseDirectory = manifest.toAbsolutePath().getParent();
+        List<Job> jobs = new ArrayList<>();
+        Set<Path> outputDirectories = new HashSet<>();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith(COMMENT)) {
+                continue;
+            }
+            int lineNumber = i + 1;
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length < 2 || fields.length > 3 || fields[0].isBlank() || fields[1].isBlank()) {
+                jobs.add(Job.invalid("line " + lineNumber,
+                        "expected customer file;payments file[;name] in line " + lineNumber));
+                continue;
+            }
+            Path customerFile = baseDirectory.resolve(fields[0].strip());
+            Path paymentsFile = baseDirectory.resolve(fields[1].strip());
+            String name = fields.length == 3 && !fields[2].isBlank()
+                    ? fields[2].strip() : CsvFileNames.baseName(paymentsFile);
+            Path outputDirectory = outputRoot.resolve(name).normalize();
+            if (!outputDirectory.startsWith(outputRoot.normalize()) || outputDirectory.equals(outputRoot.normalize())) {
+                jobs.add(Job.invalid(name, "name is not a directory inside the batch output directory"));
+            } else if (!outputDirectories.add(outputDirectory)) {
+                // two jobs writing to the same directory would overwrite each other's reports,
+                // compared normalized, so a and ./a or x/../a are the same
+                jobs.add(Job.invalid(name + " (line " + lineNumber + ")",
+                        "output directory is used by an earlier job"));
+            } else {
+                jobs.add(new Job(name, customerFile.toFile(), paymentsFile.toFile(), outputDirectory, null));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Processes one job, failures are logged and returned as the result of the job.
+     */
+    private JobResult process(Job job, Logger logger) {
+        long startNanos = System.nanoTime();
+        if (job.error() != null) {
+            CONSOLE_LOGGER.severe(String.format("Job %s failed: %s.", job.name(), job.error()));
+            return JobResult.failed(job.name(), job.error(), 0);
+        }
+        try {
+            Files.createDirectories(job.outputDirectory());
+            PipelineMetrics metrics = new PipelineMetrics();
+            RejectCounters customerCounters = new RejectCounters();
+            RejectCounters paymentCounters = new RejectCounters();
+            CustomerIndex customers;
+            PaymentPipeline.ValidatedPayments payments;
+            try (RejectSink rejects = paymentPipeline.openRejectSink(job.outputDirectory(), logger)) {
+                customers = paymentPipeline.validateCustomerFile(rejects, customerCounters, job.customerFile(),
+                        metrics);
+                payments = paymentPipeline.validatePaymentsFile(rejects, paymentCounters, job.customerFile(),
+                        job.paymentsFile(), customers, metrics, false);
+            }
+            paymentPipeline.logRejectCounts(job.name() + " customers", customerCounters);
+            paymentPipeline.logRejectCounts(job.name() + " payments", paymentCounters);
+            paymentPipeline.createReports(payments, customers, metrics, job.outputDirectory());
+            JobResult result = new JobResult(job.name(), true, null,
+                    customerCounters.getRowCount() + paymentCounters.getRowCount(),
+                    job.customerFile().length() + job.paymentsFile().length(), System.nanoTime() - startNanos);
+            CONSOLE_LOGGER.info(String.format(Locale.ROOT,
+                    "Job %s: %d rows, %d bytes in %.1f ms (%.0f rows/s, %.1f MB/s), reports written to %s.",
+                    result.name(), result.rows(), result.bytes(), result.wallNanos() / 1e6,
+                    result.getRowsPerSecond(), result.getBytesPerSecond() / 1e6, job.outputDirectory()));
+            return result;
+        } catch (IOException | ExecutionException | RuntimeException exception) {
+            CONSOLE_LOGGER.log(Level.SEVERE, String.format("Job %s failed.", job.name()), exception);
+            return JobResult.failed(job.name(), exception.toString(), System.nanoTime() - startNanos);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return JobResult.failed(job.name(), "interrupted", System.nanoTime() - startNanos);
+        }
+    }
+
+    private static void logBatch(List<JobResult> results, long wallNanos) {
+        long rows = results.stream().mapToLong(JobResult::rows).sum();
+        long bytes = results.stream().mapToLong(JobResult::bytes).sum();
+        long failed = results.stream().filter(result -> !result.succeeded()).count();
+        CONSOLE_LOGGER.info(String.format(Locale.ROOT,
+                "Batch: %d jobs succeeded, %d failed, %d rows, %d bytes in %.1f ms (%.0f rows/s, %.1f MB/s).",
+                results.size() - failed, failed, rows, bytes, wallNanos / 1e6, perSecond(rows, wallNanos),
+                perSecond(bytes, wallNanos) / 1e6));
+        if (failed > 0) {
+            CONSOLE_LOGGER.severe(String.format("Failed jobs: %s.", results.stream()
+                    .filter(result -> !result.succeeded()).map(JobResult::name).toList()));
+        }
+    }
+
+    /**
+     * Writes the results of the jobs and the throughput of the batch as JSON.
+     */
+    private static void writeSummary(Path file, Instant startTime, long wallNanos, List<JobResult> results)
+            throws IOException {
+        long rows = results.stream().mapToLong(JobResult::rows).sum();
+        long bytes = results.stream().mapToLong(JobResult::bytes).sum();
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"startTime\": \"").append(startTime).append("\",\n");
+        json.append("  \"wallTimeMillis\": ").append(toMillis(wallNanos)).append(",\n");
+        json.append("  \"rows\": ").append(rows).append(",\n");
+        json.append("  \"rowsPerSecond\": ").append(Math.round(perSecond(rows, wallNanos))).append(",\n");
+        json.append("  \"bytes\": ").append(bytes).append(",\n");
+        json.append("  \"bytesPerSecond\": ").append(Math.round(perSecond(bytes, wallNanos))).append(",\n");
+        json.append("  \"jobs\": [");
+        for (int i = 0; i < results.size(); i++) {
+            JobResult result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(Json.escape(result.name())).append('"')
+                    .append(", \"succeeded\": ").append(result.succeeded());
+            if (result.error() != null) {
+                json.append(", \"error\": \"").append(Json.escape(result.error())).append('"');
+            }
+            json.append(", \"wallTimeMillis\": ").append(toMillis(result.wallNanos()))
+                    .append(", \"rows\": ").append(result.rows())
+                    .append(", \"rowsPerSecond\": ").append(Math.round(result.getRowsPerSecond()))
+                    .append(", \"bytes\": ").append(result.bytes())
+                    .append(", \"bytesPerSecond\": ").append(Math.round(result.getBytesPerSecond()))
+                    .append('}');
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+
+    private static double perSecond(long amount, long nanos) {
+        return nanos > 0 ? amount * 1e9 / nanos : 0;
+    }
+
+    private static String toMillis(long nanos) {
+        // JSON numbers always use a decimal point
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * A file pair of the manifest.
+     *
+     * @param error reason the line of the manifest cannot be processed, null for a valid job
+     */
+    private record Job(String name, File customerFile, File paymentsFile, Path outputDirectory, String error) {
+
+        static Job invalid(String name, String error) {
+            return new Job(name, null, null, null, error);
+        }
+    }
+
+    /**
+     * Result of one job.
+     *
+     * @param name name of the job, also the name of its output directory
+     * @param succeeded true if all reports of the job were written
+     * @param error reason of the failure, null if the job succeeded
+     * @param rows number of customer and payment rows read
+     * @param bytes size of the input files
+     * @param wallNanos wall clock time of the job in nanoseconds
+     */
+    public record JobResult(String name, boolean succeeded, String error, long rows, long bytes, long wallNanos) {
+
+        static JobResult failed(String name, String error, long wallNanos) {
+            return new JobResult(name, false, error, 0, 0, wallNanos);
+        }
+
+        public double getRowsPerSecond() {
+            return perSecond(rows, wallNanos);
+        }
+
+        public double getBytesPerSecond() {
+            return perSecond(bytes, wallNanos);
+        }
+    }
+}
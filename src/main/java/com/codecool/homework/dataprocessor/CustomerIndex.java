@@ -0,0 +1,147 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.util.CsvRow;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of validated Customers addressed by a compact integer key.
+ * Webshop id (WS##) and customer id (A##) together have 100 * 100 possible values,
+ * so every customer fits into a flat array slot between 0 and 9999.
+ */
+public class CustomerIndex {
+    public static final int CAPACITY = 10_000;
+    // number of possible webshop numbers, the first two digits of a key
+    public static final int WEBSHOP_CAPACITY = 100;
+    // returned by keyOf when the ids are not in WS## and A## format
+    public static final int INVALID_KEY = -1;
+
+    private final Customer[] customers = new Customer[CAPACITY];
+    // keys already met while collecting duplicates
+    private final BitSet seenKeys = new BitSet(CAPACITY);
+    // keys met more than once while collecting duplicates
+    private final BitSet duplicateKeys = new BitSet(CAPACITY);
+    private final List<Customer> customersInInsertionOrder = new ArrayList<>();
+
+    /**
+     * Computes the key of a customer from its webshop id and customer id without building any Strings.
+     *
+     * @param webshopId webshop id in WS## format
+     * @param customerId customer id in A## format
+     *
+     * @return key between 0 and 9999 or INVALID_KEY if any of the ids is malformed.
+     */
+    public static int keyOf(CharSequence webshopId, CharSequence customerId) {
+        if (webshopId.length() != 4 || webshopId.charAt(0) != 'W' || webshopId.charAt(1) != 'S'
+                || customerId.length() != 3 || customerId.charAt(0) != 'A') {
+            return INVALID_KEY;
+        }
+        int webshopNumber = twoDigitNumber(webshopId.charAt(2), webshopId.charAt(3));
+        int customerNumber = twoDigitNumber(customerId.charAt(1), customerId.charAt(2));
+        if (webshopNumber < 0 || customerNumber < 0) {
+            return INVALID_KEY;
+        }
+        return webshopNumber * 100 + customerNumber;
+    }
+
+    /**
+     * @param webshopId webshop id in WS## format
+     *
+     * @return number of the webshop between 0 and 99 or INVALID_KEY if the id is malformed.
+     */
+    public static int webshopNumberOf(CharSequence webshopId) {
+        if (webshopId.length() != 4 || webshopId.charAt(0) != 'W' || webshopId.charAt(1) != 'S') {
+            return INVALID_KEY;
+        }
+        int webshopNumber = twoDigitNumber(webshopId.charAt(2), webshopId.charAt(3));
+        return webshopNumber < 0 ? INVALID_KEY : webshopNumber;
+    }
+
+    /**
+     * Computes the key of a customer from the raw bytes of the webshop id and customer id fields of a csv row.
+     *
+     * @param row csv row holding the ids
+     * @param webshopIdField index of the webshop id (WS##) field
+     * @param customerIdField index of the customer id (A##) field
+     *
+     * @return key between 0 and 9999 or INVALID_KEY if any of the ids is malformed.
+     */
+    public static int keyOf(CsvRow row, int webshopIdField, int customerIdField) {
+        if (row.getFieldCount() <= Math.max(webshopIdField, customerIdField)
+                || row.getFieldLength(webshopIdField) != 4 || row.byteAt(webshopIdField, 0) != 'W'
+                || row.byteAt(webshopIdField, 1) != 'S' || row.getFieldLength(customerIdField) != 3
+                || row.byteAt(customerIdField, 0) != 'A') {
+            return INVALID_KEY;
+        }
+        int webshopNumber = twoDigitNumber(row.byteAt(webshopIdField, 2), row.byteAt(webshopIdField, 3));
+        int customerNumber = twoDigitNumber(row.byteAt(customerIdField, 1), row.byteAt(customerIdField, 2));
+        if (webshopNumber < 0 || customerNumber < 0) {
+            return INVALID_KEY;
+        }
+        return webshopNumber * 100 + customerNumber;
+    }
+
+    /**
+     * Registers a key as seen, marking it as duplicate if it was already seen before.
+     *
+     * @param key key of the customer
+     */
+    public void markSeen(int key) {
+        if (seenKeys.get(key)) {
+            duplicateKeys.set(key);
+        } else {
+            seenKeys.set(key);
+        }
+    }
+
+    public boolean isDuplicate(int key) {
+        return duplicateKeys.get(key);
+    }
+
+    public void add(int key, Customer customer) {
+        if (customers[key] == null) {
+            customersInInsertionOrder.add(customer);
+        }
+        customers[key] = customer;
+    }
+
+    /**
+     * @return the Customer stored under the key or null if there is none (or the key is INVALID_KEY).
+     */
+    public Customer get(int key) {
+        if (key == INVALID_KEY) {
+            return null;
+        }
+        return customers[key];
+    }
+
+    public int size() {
+        return customersInInsertionOrder.size();
+    }
+
+    /**
+     * @return unmodifiable view of the indexed Customers.
+     */
+    public List<Customer> getCustomers() {
+        return Collections.unmodifiableList(customersInInsertionOrder);
+    }
+
+    // only ASCII digits, like in the raw bytes of the csv rows, Character.digit would accept any Unicode digit
+    private static int twoDigitNumber(char tens, char ones) {
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    private static int twoDigitNumber(byte tens, byte ones) {
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+}
@@ -0,0 +1,87 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CsvRow;
+
+/**
+ * Validates the rows of the customer file on the raw field slices, nothing is decoded for invalid rows.
+ */
+public class CustomerValidator {
+    private static final int FIELD_COUNT = 4;
+    private static final int WEBSHOP_ID = 0;
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int ADDRESS = 3;
+
+    private final CustomerIndex customers;
+    private final ValidationPipeline pipeline;
+
+    /**
+     * @param customers index of Customers with the duplicate unique (webshop + customer) ids marked
+     * @param counters counters of the validation results
+     */
+    public CustomerValidator(CustomerIndex customers, RejectCounters counters) {
+        this.customers = customers;
+        this.pipeline = new ValidationPipeline(counters,
+                this::checkFieldCount,
+                this::checkWebshopId,
+                this::checkId,
+                this::checkDuplicate,
+                this::checkName,
+                this::checkAddress);
+    }
+
+    /**
+     * @return RejectReason.VALID or the reason of rejecting the row.
+     */
+    public RejectReason validate(CsvRow row) {
+        return pipeline.validate(row);
+    }
+
+    /**
+     * Creates the Customer of a row which passed the validation.
+     */
+    public Customer createCustomer(CsvRow row) {
+        return new Customer(row.getField(WEBSHOP_ID), row.getField(ID), row.getField(NAME), row.getField(ADDRESS));
+    }
+
+    // trailing empty fields are not counted, like with the String.split(";") the rows were read with before
+    private RejectReason checkFieldCount(CsvRow row) {
+        return row.getSplitFieldCount() == FIELD_COUNT ? RejectReason.VALID : RejectReason.CUSTOMER_FIELD_COUNT;
+    }
+
+    private RejectReason checkWebshopId(CsvRow row) {
+        if (row.getFieldLength(WEBSHOP_ID) != 4) {
+            return RejectReason.CUSTOMER_WEBSHOP_ID_LENGTH;
+        }
+        if (!FieldFormat.isWebshopId(row, WEBSHOP_ID)) {
+            return RejectReason.CUSTOMER_WEBSHOP_ID_FORMAT;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkId(CsvRow row) {
+        if (row.getFieldLength(ID) != 3) {
+            return RejectReason.CUSTOMER_ID_LENGTH;
+        }
+        if (!FieldFormat.isCustomerId(row, ID)) {
+            return RejectReason.CUSTOMER_ID_FORMAT;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkDuplicate(CsvRow row) {
+        return customers.isDuplicate(CustomerIndex.keyOf(row, WEBSHOP_ID, ID))
+                ? RejectReason.CUSTOMER_DUPLICATE_ID
+                : RejectReason.VALID;
+    }
+
+    private RejectReason checkName(CsvRow row) {
+        return row.isFieldEmpty(NAME) ? RejectReason.CUSTOMER_NAME_EMPTY : RejectReason.VALID;
+    }
+
+    private RejectReason checkAddress(CsvRow row) {
+        return row.isFieldEmpty(ADDRESS) ? RejectReason.CUSTOMER_ADDRESS_EMPTY : RejectReason.VALID;
+    }
+}
@@ -0,0 +1,181 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.util.ExactSumArray;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Sums of the card and transfer payments per webshop and day.
+ * A (webshop, day) pair is looked up in an open addressing table of primitive keys and owns a slot
+ * of the sum arrays, so adding a Payment does not allocate unless the table grows.
+ */
+public class DailyPaymentSums {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EMPTY = -1;
+    // the earliest day of a 4 digit year, so keys are never negative
+    private static final int FIRST_EPOCH_DAY = -719_528;
+
+    // hash table of the keys, mapping them to slots
+    private int[] tableKeys;
+    private int[] tableSlots;
+    // keys in the order of their slots
+    private int[] slotKeys;
+    private int slotCount;
+    private ExactSumArray cardSums;
+    private ExactSumArray transferSums;
+
+    public DailyPaymentSums() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private DailyPaymentSums(int capacity) {
+        tableKeys = new int[capacity * 2];
+        tableSlots = new int[capacity * 2];
+        Arrays.fill(tableKeys, EMPTY);
+        slotKeys = new int[capacity];
+        cardSums = new ExactSumArray(capacity);
+        transferSums = new ExactSumArray(capacity);
+    }
+
+    /**
+     * Adds an amount to the sum of a webshop on a day.
+     *
+     * @param webshopNumber number of the webshop in its WS## id
+     * @param epochDay day of the payment as days since 1970.01.01
+     * @param card true for card payments, false for transfers
+     * @param amount amount of the payment
+     */
+    public void add(int webshopNumber, int epochDay, boolean card, long amount) {
+        int slot = slotOf((epochDay - FIRST_EPOCH_DAY) * CustomerIndex.WEBSHOP_CAPACITY + webshopNumber);
+        if (card) {
+            cardSums.add(slot, amount);
+        } else {
+            transferSums.add(slot, amount);
+        }
+    }
+
+    /**
+     * Adds the sums of other Payments, e.g. the sums of a partition of the Payments.
+     *
+     * @param other sums to add
+     */
+    public void addAll(DailyPaymentSums other) {
+        for (int otherSlot = 0; otherSlot < other.slotCount; otherSlot++) {
+            int slot = slotOf(other.slotKeys[otherSlot]);
+            cardSums.add(slot, other.cardSums, otherSlot);
+            transferSums.add(slot, other.transferSums, otherSlot);
+        }
+    }
+
+    /**
+     * @return number of (webshop, day) pairs with at least one Payment.
+     */
+    public int size() {
+        return slotCount;
+    }
+
+    public int getWebshopNumber(int slot) {
+        return slotKeys[slot] % CustomerIndex.WEBSHOP_CAPACITY;
+    }
+
+    public int getEpochDay(int slot) {
+        return slotKeys[slot] / CustomerIndex.WEBSHOP_CAPACITY + FIRST_EPOCH_DAY;
+    }
+
+    public BigInteger getCardSum(int slot) {
+        return cardSums.get(slot);
+    }
+
+    public BigInteger getTransferSum(int slot) {
+        return transferSums.get(slot);
+    }
+
+    /**
+     * Writes the sums in a format readable by readFrom.
+     *
+     * @param output output to write to
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            output.writeInt(slotKeys[slot]);
+        }
+        cardSums.writeTo(output);
+        transferSums.writeTo(output);
+    }
+
+    /**
+     * Reads sums written by writeTo, more Payments can be added to them.
+     *
+     * @param input input to read from
+     *
+     * @return the sums read.
+     */
+    public static DailyPaymentSums readFrom(DataInput input) throws IOException {
+        int slotCount = input.readInt();
+        int[] keys = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            keys[slot] = input.readInt();
+        }
+        ExactSumArray cardSums = ExactSumArray.readFrom(input);
+        ExactSumArray transferSums = ExactSumArray.readFrom(input);
+        DailyPaymentSums dailySums = new DailyPaymentSums(cardSums.size());
+        for (int key : keys) {
+            dailySums.slotOf(key);
+        }
+        dailySums.cardSums = cardSums;
+        dailySums.transferSums = transferSums;
+        return dailySums;
+    }
+
+    private int slotOf(int key) {
+        int mask = tableKeys.length - 1;
+        int index = mix(key) & mask;
+        while (tableKeys[index] != EMPTY) {
+            if (tableKeys[index] == key) {
+                return tableSlots[index];
+            }
+            index = (index + 1) & mask;
+        }
+        if (slotCount == slotKeys.length) {
+            grow();
+            return slotOf(key);
+        }
+        tableKeys[index] = key;
+        tableSlots[index] = slotCount;
+        slotKeys[slotCount] = key;
+        return slotCount++;
+    }
+
+    /**
+     * Doubles the capacity, the table stays at most half full.
+     */
+    private void grow() {
+        int capacity = slotKeys.length * 2;
+        slotKeys = Arrays.copyOf(slotKeys, capacity);
+        cardSums = cardSums.copyOf(capacity);
+        transferSums = transferSums.copyOf(capacity);
+        tableKeys = new int[capacity * 2];
+        tableSlots = new int[capacity * 2];
+        Arrays.fill(tableKeys, EMPTY);
+        int mask = tableKeys.length - 1;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int index = mix(slotKeys[slot]) & mask;
+            while (tableKeys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            tableKeys[index] = slotKeys[slot];
+            tableSlots[index] = slot;
+        }
+    }
+
+    private static int mix(int key) {
+        // consecutive days of a webshop are 100 apart, spreading them over the table
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
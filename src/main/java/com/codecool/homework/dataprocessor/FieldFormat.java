@@ -0,0 +1,31 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.util.CsvRow;
+
+/**
+ * Format checks of the fields shared by the customer and the payment validation.
+ */
+final class FieldFormat {
+
+    private FieldFormat() {
+    }
+
+    /**
+     * @return true if the field is in WS## format.
+     */
+    static boolean isWebshopId(CsvRow row, int field) {
+        return row.byteAt(field, 0) == 'W' && row.byteAt(field, 1) == 'S'
+                && isDigit(row.byteAt(field, 2)) && isDigit(row.byteAt(field, 3));
+    }
+
+    /**
+     * @return true if the field is in A## format.
+     */
+    static boolean isCustomerId(CsvRow row, int field) {
+        return row.byteAt(field, 0) == 'A' && isDigit(row.byteAt(field, 1)) && isDigit(row.byteAt(field, 2));
+    }
+
+    static boolean isDigit(byte character) {
+        return character >= '0' && character <= '9';
+    }
+}
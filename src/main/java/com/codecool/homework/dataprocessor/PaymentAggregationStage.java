@@ -0,0 +1,124 @@
+package com.codecool.homework.dataprocessor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Aggregates the valid Payments of a payments file on a thread of its own while the file is still being validated.
+ * The validated chunks are published in file order to a subscriber which requests one chunk at a time,
+ * at most queueCapacity chunks wait between the stages: once the queue is full submit blocks the validation
+ * until the aggregation catches up, so the Payments in memory do not grow with the size of the file.
+ */
+public class PaymentAggregationStage implements Closeable {
+    private final ReportBuilder reportBuilder;
+    private final PaymentAggregator aggregates;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-aggregation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SubmissionPublisher<PaymentTable> publisher;
+    // completed when the subscriber received all chunks, or failed with the error of the aggregation
+    private final CompletableFuture<PaymentAggregator> result = new CompletableFuture<>();
+    private long paymentCount;
+
+    /**
+     * @param reportBuilder aggregates the Payments of a chunk
+     * @param aggregates sums to add the Payments to
+     * @param queueCapacity maximum number of validated chunks waiting for the aggregation
+     */
+    public PaymentAggregationStage(ReportBuilder reportBuilder, PaymentAggregator aggregates, int queueCapacity) {
+        this.reportBuilder = reportBuilder;
+        this.aggregates = aggregates;
+        this.publisher = new SubmissionPublisher<>(executor, Math.max(1, queueCapacity));
+        publisher.subscribe(new AggregatingSubscriber());
+    }
+
+    /**
+     * Passes the valid Payments of a chunk on, blocking while the queue is full.
+     *
+     * @param payments valid Payments of the next chunk of the file
+     */
+    public void submit(PaymentTable payments) throws IOException {
+        if (result.isCompletedExceptionally()) {
+            // the aggregation failed, the error is thrown by finish
+            finish();
+        }
+        paymentCount += payments.size();
+        publisher.submit(payments);
+    }
+
+    /**
+     * Waits until all submitted chunks are aggregated.
+     *
+     * @return the sums of all submitted Payments.
+     */
+    public PaymentAggregator finish() throws IOException {
+        publisher.close();
+        try {
+            return result.get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Aggregating the payments was interrupted.", interruptedException);
+        } catch (ExecutionException executionException) {
+            throw new IOException("Aggregating the payments failed.", executionException.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return number of Payments submitted.
+     */
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    /**
+     * Stops the aggregation without waiting for the queued chunks, e.g. when the validation failed.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+        executor.shutdownNow();
+    }
+
+    private class AggregatingSubscriber implements Flow.Subscriber<PaymentTable> {
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(PaymentTable payments) {
+            try {
+                reportBuilder.aggregatePayments(aggregates, payments);
+            } catch (RuntimeException exception) {
+                subscription.cancel();
+                result.completeExceptionally(exception);
+                return;
+            }
+            // the next chunk is only requested when this one is done, the others wait in the bounded queue
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(aggregates);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.util.AmountHistogram;
+import com.codecool.homework.util.ExactSumArray;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.BitSet;
+
+/**
+ * Accumulates the sums needed by the reports in a single pass over the validated Payments.
+ * Customers are addressed by their CustomerIndex key, webshops by the number in their WS## id.
+ * Sums are kept as longs and only fall back to BigInteger if they overflow.
+ * The distribution of the amounts of every webshop and payment type is kept in an AmountHistogram.
+ */
+public class PaymentAggregator {
+    public static final int DEFAULT_AMOUNT_PRECISION_BITS = 7;
+
+    private final ExactSumArray customerSums;
+    private final ExactSumArray webshopCardSums;
+    private final ExactSumArray webshopTransferSums;
+    private final DailyPaymentSums dailySums;
+    // webshop ids as they were read from the csv, indexed by webshop number
+    private final String[] webshopIds = new String[CustomerIndex.WEBSHOP_CAPACITY];
+    private final BitSet webshopsWithPayment = new BitSet(CustomerIndex.WEBSHOP_CAPACITY);
+    private final int amountPrecisionBits;
+    // amount distributions by webshop number, null until the webshop has a Payment of the type
+    private final AmountHistogram[] webshopCardAmounts = new AmountHistogram[CustomerIndex.WEBSHOP_CAPACITY];
+    private final AmountHistogram[] webshopTransferAmounts = new AmountHistogram[CustomerIndex.WEBSHOP_CAPACITY];
+
+    public PaymentAggregator() {
+        this(DEFAULT_AMOUNT_PRECISION_BITS);
+    }
+
+    /**
+     * @param amountPrecisionBits precision of the amount histograms, see AmountHistogram
+     */
+    public PaymentAggregator(int amountPrecisionBits) {
+        this(new ExactSumArray(CustomerIndex.CAPACITY), new ExactSumArray(CustomerIndex.WEBSHOP_CAPACITY),
+                new ExactSumArray(CustomerIndex.WEBSHOP_CAPACITY), new DailyPaymentSums(), amountPrecisionBits);
+    }
+
+    private PaymentAggregator(ExactSumArray customerSums, ExactSumArray webshopCardSums,
+                              ExactSumArray webshopTransferSums, DailyPaymentSums dailySums,
+                              int amountPrecisionBits) {
+        this.customerSums = customerSums;
+        this.webshopCardSums = webshopCardSums;
+        this.webshopTransferSums = webshopTransferSums;
+        this.dailySums = dailySums;
+        this.amountPrecisionBits = AmountHistogram.checkPrecisionBits(amountPrecisionBits);
+    }
+
+    /**
+     * Adds one validated Payment to the customer, webshop and daily webshop accumulators.
+     *
+     * @param customerKey CustomerIndex key of the customer
+     * @param webshopId id of the webshop as read from the csv
+     * @param card true for card payments, false for transfers
+     * @param amountPayed amount of the payment
+     * @param epochDay day of the payment as days since 1970.01.01
+     */
+    public void add(int customerKey, String webshopId, boolean card, long amountPayed, int epochDay) {
+        int webshopNumber = customerKey / 100;
+        customerSums.add(customerKey, amountPayed);
+        if (card) {
+            webshopCardSums.add(webshopNumber, amountPayed);
+            amountHistogram(webshopCardAmounts, webshopNumber).add(amountPayed);
+        } else {
+            webshopTransferSums.add(webshopNumber, amountPayed);
+            amountHistogram(webshopTransferAmounts, webshopNumber).add(amountPayed);
+        }
+        dailySums.add(webshopNumber, epochDay, card, amountPayed);
+        if (!webshopsWithPayment.get(webshopNumber)) {
+            webshopsWithPayment.set(webshopNumber);
+            webshopIds[webshopNumber] = webshopId;
+        }
+    }
+
+    /**
+     * Adds the sums of another aggregator, e.g. the sums of a partition of the Payments.
+     * The sums are exact, so the result does not depend on the order of the merges.
+     *
+     * @param other sums to add
+     */
+    public void addAll(PaymentAggregator other) {
+        for (int customerKey = 0; customerKey < customerSums.size(); customerKey++) {
+            customerSums.add(customerKey, other.customerSums, customerKey);
+        }
+        for (int webshopNumber : other.getWebshopNumbers()) {
+            webshopCardSums.add(webshopNumber, other.webshopCardSums, webshopNumber);
+            webshopTransferSums.add(webshopNumber, other.webshopTransferSums, webshopNumber);
+            addAmounts(webshopCardAmounts, other.webshopCardAmounts, webshopNumber);
+            addAmounts(webshopTransferAmounts, other.webshopTransferAmounts, webshopNumber);
+            if (!webshopsWithPayment.get(webshopNumber)) {
+                webshopsWithPayment.set(webshopNumber);
+                webshopIds[webshopNumber] = other.webshopIds[webshopNumber];
+            }
+        }
+        dailySums.addAll(other.dailySums);
+    }
+
+    public BigInteger getCustomerSum(int customerKey) {
+        return customerSums.get(customerKey);
+    }
+
+    public BigInteger getWebshopCardSum(int webshopNumber) {
+        return webshopCardSums.get(webshopNumber);
+    }
+
+    public BigInteger getWebshopTransferSum(int webshopNumber) {
+        return webshopTransferSums.get(webshopNumber);
+    }
+
+    /**
+     * @return distribution of the card payment amounts of the webshop, null if it has no card payment.
+     */
+    public AmountHistogram getWebshopCardAmounts(int webshopNumber) {
+        return webshopCardAmounts[webshopNumber];
+    }
+
+    /**
+     * @return distribution of the transfer amounts of the webshop, null if it has no transfer.
+     */
+    public AmountHistogram getWebshopTransferAmounts(int webshopNumber) {
+        return webshopTransferAmounts[webshopNumber];
+    }
+
+    public int getAmountPrecisionBits() {
+        return amountPrecisionBits;
+    }
+
+    public DailyPaymentSums getDailySums() {
+        return dailySums;
+    }
+
+    public String getWebshopId(int webshopNumber) {
+        return webshopIds[webshopNumber];
+    }
+
+    /**
+     * @return numbers of the webshops with at least one Payment, in ascending order.
+     */
+    public int[] getWebshopNumbers() {
+        return webshopsWithPayment.stream().toArray();
+    }
+
+    /**
+     * Writes the sums, webshop ids and amount distributions in a format readable by readFrom.
+     *
+     * @param output output to write to
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        customerSums.writeTo(output);
+        webshopCardSums.writeTo(output);
+        webshopTransferSums.writeTo(output);
+        dailySums.writeTo(output);
+        output.writeInt(webshopsWithPayment.cardinality());
+        for (int webshopNumber : getWebshopNumbers()) {
+            output.writeInt(webshopNumber);
+            output.writeUTF(webshopIds[webshopNumber]);
+        }
+        output.writeInt(amountPrecisionBits);
+        for (int webshopNumber : getWebshopNumbers()) {
+            writeAmounts(output, webshopCardAmounts[webshopNumber]);
+            writeAmounts(output, webshopTransferAmounts[webshopNumber]);
+        }
+    }
+
+    /**
+     * Reads an aggregator written by writeTo, more Payments can be added to it.
+     *
+     * @param input input to read from
+     *
+     * @return the aggregator read.
+     */
+    public static PaymentAggregator readFrom(DataInput input) throws IOException {
+        ExactSumArray customerSums = ExactSumArray.readFrom(input);
+        ExactSumArray webshopCardSums = ExactSumArray.readFrom(input);
+        ExactSumArray webshopTransferSums = ExactSumArray.readFrom(input);
+        DailyPaymentSums dailySums = DailyPaymentSums.readFrom(input);
+        int webshopCount = input.readInt();
+        int[] webshopNumbers = new int[webshopCount];
+        String[] webshopIds = new String[webshopCount];
+        for (int i = 0; i < webshopCount; i++) {
+            webshopNumbers[i] = input.readInt();
+            webshopIds[i] = input.readUTF();
+        }
+        PaymentAggregator aggregator = new PaymentAggregator(customerSums, webshopCardSums, webshopTransferSums,
+                dailySums, input.readInt());
+        for (int i = 0; i < webshopCount; i++) {
+            aggregator.webshopsWithPayment.set(webshopNumbers[i]);
+            aggregator.webshopIds[webshopNumbers[i]] = webshopIds[i];
+            aggregator.webshopCardAmounts[webshopNumbers[i]] = readAmounts(input);
+            aggregator.webshopTransferAmounts[webshopNumbers[i]] = readAmounts(input);
+        }
+        return aggregator;
+    }
+
+    private AmountHistogram amountHistogram(AmountHistogram[] histograms, int webshopNumber) {
+        if (histograms[webshopNumber] == null) {
+            histograms[webshopNumber] = new AmountHistogram(amountPrecisionBits);
+        }
+        return histograms[webshopNumber];
+    }
+
+    private void addAmounts(AmountHistogram[] histograms, AmountHistogram[] otherHistograms, int webshopNumber) {
+        if (otherHistograms[webshopNumber] != null) {
+            amountHistogram(histograms, webshopNumber).addAll(otherHistograms[webshopNumber]);
+        }
+    }
+
+    private static void writeAmounts(DataOutput output, AmountHistogram histogram) throws IOException {
+        output.writeBoolean(histogram != null);
+        if (histogram != null) {
+            histogram.writeTo(output);
+        }
+    }
+
+    private static AmountHistogram readAmounts(DataInput input) throws IOException {
+        return input.readBoolean() ? AmountHistogram.readFrom(input) : null;
+    }
+}
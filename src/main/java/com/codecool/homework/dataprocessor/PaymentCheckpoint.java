@@ -0,0 +1,186 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.util.FileDigest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * State of the incremental processing of a payments file which is only appended to.
+ * Holds the sums of the payments validated so far with the checkpoint they belong to: the byte offset and
+ * row count processed in the payments file and SHA-256 hashes of the processed prefix and of the customer file.
+ * A checkpoint is only resumed if both hashes still match, otherwise the payments are processed from the start.
+ */
+public class PaymentCheckpoint {
+    private static final int MAGIC = 0x48574350;
+    // to be increased if the format or the validation changes, so older state files are rebuilt
+    private static final int VERSION = 4;
+    private static final int MAX_HASH_LENGTH = 64;
+
+    private final byte[] customerFileHash;
+    private final PaymentAggregator aggregates;
+    // hash of the payments file up to the offset, continued when the checkpoint is advanced
+    private final MessageDigest paymentsDigest;
+    private final boolean resumed;
+    private long paymentsOffset;
+    private long paymentsRowCount;
+
+    private PaymentCheckpoint(byte[] customerFileHash, PaymentAggregator aggregates, MessageDigest paymentsDigest,
+                              boolean resumed, long paymentsOffset, long paymentsRowCount) {
+        this.customerFileHash = customerFileHash;
+        this.aggregates = aggregates;
+        this.paymentsDigest = paymentsDigest;
+        this.resumed = resumed;
+        this.paymentsOffset = paymentsOffset;
+        this.paymentsRowCount = paymentsRowCount;
+    }
+
+    /**
+     * Loads the checkpoint of the previous run if it is still valid for the input files,
+     * otherwise returns an empty checkpoint at the start of the payments file.
+     *
+     * @param stateFile file of the saved checkpoint
+     * @param customerFile customer csv file of the run
+     * @param paymentsFile payments csv file of the run
+     * @param amountPrecisionBits precision of the amount histograms of the run
+     * @param consoleLogger Logger for the reason of a full rebuild
+     *
+     * @return checkpoint to continue the processing from.
+     */
+    public static PaymentCheckpoint resume(Path stateFile, File customerFile, File paymentsFile,
+                                           int amountPrecisionBits, Logger consoleLogger) throws IOException {
+        byte[] customerFileHash = FileDigest.hash(customerFile);
+        PaymentCheckpoint emptyCheckpoint = new PaymentCheckpoint(customerFileHash,
+                new PaymentAggregator(amountPrecisionBits), FileDigest.newDigest(), false, 0, 0);
+        if (!Files.exists(stateFile)) {
+            consoleLogger.info(String.format("No checkpoint found in %s, processing all payments.", stateFile));
+            return emptyCheckpoint;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                consoleLogger.warning(String.format("Checkpoint %s has an unknown format, processing all payments.",
+                        stateFile));
+                return emptyCheckpoint;
+            }
+            byte[] storedCustomerFileHash = readBytes(input);
+            long offset = input.readLong();
+            long rowCount = input.readLong();
+            byte[] storedPaymentsHash = readBytes(input);
+            if (!Arrays.equals(storedCustomerFileHash, customerFileHash)) {
+                consoleLogger.info("Customer file changed since the checkpoint, processing all payments.");
+                return emptyCheckpoint;
+            }
+            if (paymentsFile.length() < offset) {
+                consoleLogger.info("Payments file is shorter than at the checkpoint, processing all payments.");
+                return emptyCheckpoint;
+            }
+            MessageDigest paymentsDigest = FileDigest.newDigest();
+            FileDigest.update(paymentsDigest, paymentsFile, 0, offset);
+            if (!Arrays.equals(currentHash(paymentsDigest), storedPaymentsHash)) {
+                consoleLogger.info("Payments before the checkpoint changed, processing all payments.");
+                return emptyCheckpoint;
+            }
+            PaymentAggregator aggregates = PaymentAggregator.readFrom(input);
+            if (aggregates.getAmountPrecisionBits() != amountPrecisionBits) {
+                consoleLogger.info("Amount precision changed since the checkpoint, processing all payments.");
+                return emptyCheckpoint;
+            }
+            return new PaymentCheckpoint(customerFileHash, aggregates, paymentsDigest, true, offset, rowCount);
+        } catch (IOException | RuntimeException unreadable) {
+            consoleLogger.warning(String.format("Checkpoint %s could not be read (%s), processing all payments.",
+                    stateFile, unreadable));
+            return emptyCheckpoint;
+        }
+    }
+
+    /**
+     * Moves the checkpoint forward after the Payments up to the new offset have been added to the aggregates.
+     *
+     * @param paymentsFile payments csv file of the run
+     * @param offset new offset, has to be the beginning of a line
+     * @param rowCount number of rows before the new offset
+     */
+    public void advance(File paymentsFile, long offset, long rowCount) throws IOException {
+        FileDigest.update(paymentsDigest, paymentsFile, paymentsOffset, offset);
+        paymentsOffset = offset;
+        paymentsRowCount = rowCount;
+    }
+
+    /**
+     * Saves the checkpoint, the previous state file is only replaced once the new one is written completely.
+     *
+     * @param stateFile file to save the checkpoint to
+     */
+    public void save(Path stateFile) throws IOException {
+        Path absoluteStateFile = stateFile.toAbsolutePath();
+        Path temporaryFile = absoluteStateFile.resolveSibling(absoluteStateFile.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeBytes(output, customerFileHash);
+            output.writeLong(paymentsOffset);
+            output.writeLong(paymentsRowCount);
+            writeBytes(output, currentHash(paymentsDigest));
+            aggregates.writeTo(output);
+        }
+        Files.move(temporaryFile, absoluteStateFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return sums of the Payments before the offset, Payments after it are added to the same object.
+     */
+    public PaymentAggregator getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return true if the checkpoint was loaded from the previous run, false if processing starts from scratch.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public long getPaymentsOffset() {
+        return paymentsOffset;
+    }
+
+    public long getPaymentsRowCount() {
+        return paymentsRowCount;
+    }
+
+    private static byte[] currentHash(MessageDigest digest) {
+        // the digest is cloned so it can be continued with the following bytes
+        try {
+            return ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException cloneNotSupportedException) {
+            throw new IllegalStateException(cloneNotSupportedException);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_HASH_LENGTH) {
+            throw new IOException("Invalid hash length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,160 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CardNumberBatch;
+import com.codecool.homework.util.CsvRow;
+import com.codecool.homework.util.LuhnChecker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Validates the rows of one chunk of the payments file into a table of the valid Payments and the rejected rows.
+ * The Luhn check is the last stage of the validation, it runs on batches of the card numbers of the rows passing
+ * every other rule. Such rows wait for the check of their batch, only then they are counted as valid or rejected.
+ * The raw rows of the waiting rows are kept with the batch, so the failing ones are rejected without reading
+ * the chunk again, and the rejects stay in row order.
+ * One instance validates one chunk on one thread.
+ */
+class PaymentChunkValidator implements Consumer<CsvRow> {
+    // bytes of a payment row, the buffer of the waiting rows grows if they are longer
+    private static final int TYPICAL_ROW_LENGTH = 64;
+
+    private final PaymentValidator validator;
+    private final RejectCounters counters;
+    private final CardNumberBatch cardNumbers;
+    private final PaymentTable payments = new PaymentTable();
+    private final List<Reject> rejects = new ArrayList<>();
+    // rows waiting for the Luhn check, indexed by the position of their card number in the batch
+    private final long[] waitingRowNumbers = new long[CardNumberBatch.CAPACITY];
+    private final int[] waitingPayments = new int[CardNumberBatch.CAPACITY];
+    private final int[] waitingRowEnds = new int[CardNumberBatch.CAPACITY];
+    private byte[] waitingRows = new byte[CardNumberBatch.CAPACITY * TYPICAL_ROW_LENGTH];
+    private int waitingCount;
+    // rejects of the rows after the first waiting one, merged with the failing waiting rows in row order
+    private final List<Reject> laterRejects = new ArrayList<>();
+    private int mergedLaterRejects;
+    private int failedCount;
+    private final BitSet failedPayments = new BitSet();
+
+    /**
+     * @param validator validator of the rows, counting to the counters
+     * @param counters counters of the validation results
+     * @param luhnChecker checker of the card number batches
+     */
+    PaymentChunkValidator(PaymentValidator validator, RejectCounters counters, LuhnChecker luhnChecker) {
+        this.validator = validator;
+        this.counters = counters;
+        this.cardNumbers = new CardNumberBatch(luhnChecker);
+    }
+
+    /**
+     * Validates a row, the raw row is only decoded if it is rejected.
+     */
+    @Override
+    public void accept(CsvRow row) {
+        RejectReason reason = validator.validate(row);
+        if (reason != RejectReason.VALID) {
+            reject(new Reject(row.getRowNumber(), reason, row.getLine()));
+            return;
+        }
+        if (validator.queueCardNumber(row, cardNumbers, waitingCount)) {
+            addWaitingRow(row);
+        }
+        validator.appendPayment(row, payments);
+        if (cardNumbers.isFull()) {
+            checkWaitingRows();
+        }
+    }
+
+    /**
+     * Checks the rows still waiting for the Luhn check, then removes the failing Payments from the table.
+     * Has to be called after the last row of the chunk.
+     */
+    void finish() {
+        checkWaitingRows();
+        if (!failedPayments.isEmpty()) {
+            payments.removeRows(failedPayments);
+            failedPayments.clear();
+        }
+    }
+
+    /**
+     * @return valid Payments of the chunk, complete after finish.
+     */
+    PaymentTable getPayments() {
+        return payments;
+    }
+
+    /**
+     * @return rejected rows of the chunk in row order, complete after finish.
+     */
+    List<Reject> getRejects() {
+        return rejects;
+    }
+
+    private void addWaitingRow(CsvRow row) {
+        int start = waitingCount == 0 ? 0 : waitingRowEnds[waitingCount - 1];
+        int end = start + row.getLineLength();
+        if (end > waitingRows.length) {
+            waitingRows = Arrays.copyOf(waitingRows, Math.max(end, waitingRows.length * 2));
+        }
+        row.copyLine(waitingRows, start);
+        waitingRowNumbers[waitingCount] = row.getRowNumber();
+        waitingPayments[waitingCount] = payments.size();
+        waitingRowEnds[waitingCount] = end;
+        waitingCount++;
+    }
+
+    private void reject(Reject reject) {
+        if (waitingCount > 0) {
+            laterRejects.add(reject);
+        } else {
+            rejects.add(reject);
+        }
+    }
+
+    /**
+     * Runs the Luhn check on the waiting rows, counts them and rejects the failing ones,
+     * merged in row order with the rejects of the rows read while they were waiting.
+     */
+    private void checkWaitingRows() {
+        cardNumbers.check(position -> rejectWaitingRow((int) position));
+        for (; mergedLaterRejects < laterRejects.size(); mergedLaterRejects++) {
+            rejects.add(laterRejects.get(mergedLaterRejects));
+        }
+        counters.add(RejectReason.VALID, waitingCount - failedCount);
+        counters.add(RejectReason.PAYMENT_CARD_CHECKSUM, failedCount);
+        laterRejects.clear();
+        mergedLaterRejects = 0;
+        failedCount = 0;
+        waitingCount = 0;
+    }
+
+    private void rejectWaitingRow(int position) {
+        long rowNumber = waitingRowNumbers[position];
+        for (; mergedLaterRejects < laterRejects.size()
+                && laterRejects.get(mergedLaterRejects).rowNumber() < rowNumber; mergedLaterRejects++) {
+            rejects.add(laterRejects.get(mergedLaterRejects));
+        }
+        int start = position == 0 ? 0 : waitingRowEnds[position - 1];
+        rejects.add(new Reject(rowNumber, RejectReason.PAYMENT_CARD_CHECKSUM,
+                new String(waitingRows, start, waitingRowEnds[position] - start, StandardCharsets.UTF_8)));
+        failedPayments.set(waitingPayments[position]);
+        failedCount++;
+    }
+
+    /**
+     * A rejected row of the chunk.
+     *
+     * @param rowNumber chunk relative row number
+     * @param reason reason of rejecting the row
+     * @param rawRow the row as read from the file
+     */
+    record Reject(long rowNumber, RejectReason reason, String rawRow) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.util.CsvFileNames;
+import com.codecool.homework.util.PipelineMetrics;
+import com.codecool.homework.util.RejectSink;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the application resident and processes the payments files, plain or gzip compressed,
+ * arriving in the inbox directory.
+ * The validated customers stay in memory and are only validated again when the customer file changes,
+ * so a payments file costs only its own validation and reports on an already warmed up JVM.
+ * Reports of a payments file are written to a subdirectory of the outbox named after the file,
+ * the processed file is moved next to them. The rejects of the customer file go to CUSTOMER_OUTPUT_DIRECTORY.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentInboxDaemon {
+    // for console logging the steps of the application
+    private static final Logger CONSOLE_LOGGER = Logger.getLogger("com.codecool.homework.console.logger");
+    // hidden files of the inbox are skipped, so no payments file has an output directory of this name
+    private static final String CUSTOMER_OUTPUT_DIRECTORY = ".customers";
+
+    private final PaymentPipeline paymentPipeline;
+    private final HomeworkProperties properties;
+
+    private CustomerIndex customers;
+    private FileTime customerFileModified;
+    private long customerFileSize;
+
+    /**
+     * Watches the inbox until the thread is interrupted.
+     *
+     * @param customerFile customer csv file, validated again whenever it changes
+     * @param logger Logger for the human-readable log of the rejects
+     */
+    public void run(File customerFile, Logger logger) throws IOException, InterruptedException {
+        HomeworkProperties.Daemon daemon = properties.getDaemon();
+        Path inbox = Path.of(daemon.getInbox());
+        Path outbox = Path.of(daemon.getOutbox());
+        Files.createDirectories(inbox);
+        Files.createDirectories(outbox);
+        reloadCustomersIfChanged(customerFile, outbox, logger);
+        // files waiting to settle, by path, with their size and modification time when last seen
+        Map<Path, PendingFile> pendingFiles = new TreeMap<>();
+        try (WatchService watchService = inbox.getFileSystem().newWatchService()) {
+            inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            // files which arrived while the daemon was not running
+            addPendingFiles(inbox, pendingFiles);
+            CONSOLE_LOGGER.info(String.format("Watching %s for payments files, reports are written to %s.",
+                    inbox.toAbsolutePath(), outbox.toAbsolutePath()));
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey watchKey = watchService.poll(daemon.getSettleMillis(), TimeUnit.MILLISECONDS);
+                if (watchKey != null) {
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            addPendingFiles(inbox, pendingFiles);
+                        } else if (isPaymentsFile((Path) event.context())) {
+                            pendingFiles.putIfAbsent(inbox.resolve((Path) event.context()), PendingFile.UNSEEN);
+                        }
+                    }
+                    if (!watchKey.reset()) {
+                        throw new IOException(String.format("Inbox %s is no longer accessible.", inbox));
+                    }
+                }
+                processSettledFiles(pendingFiles, customerFile, outbox, daemon.getSettleMillis(), logger);
+            }
+        }
+    }
+
+    private void addPendingFiles(Path inbox, Map<Path, PendingFile> pendingFiles) throws IOException {
+        try (Stream<Path> files = Files.list(inbox)) {
+            files.filter(file -> isPaymentsFile(file.getFileName()))
+                    .forEach(file -> pendingFiles.putIfAbsent(file, PendingFile.UNSEEN));
+        }
+    }
+
+    /**
+     * Processes the pending files which did not change for the settle time, in the order of their names.
+     * A file which is still being written keeps changing its size or modification time.
+     */
+    private void processSettledFiles(Map<Path, PendingFile> pendingFiles, File customerFile, Path outbox,
+                                     long settleMillis, Logger logger) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> pendingFile = iterator.next();
+            Path paymentsFile = pendingFile.getKey();
+            PendingFile current;
+            try {
+                current = new PendingFile(Files.size(paymentsFile), Files.getLastModifiedTime(paymentsFile), now);
+            } catch (IOException noLongerInInbox) {
+                iterator.remove();
+                continue;
+            }
+            if (!current.isSameFileAs(pendingFile.getValue())) {
+                pendingFile.setValue(current);
+            } else if (now - pendingFile.getValue().seenNanos() >= TimeUnit.MILLISECONDS.toNanos(settleMillis)) {
+                iterator.remove();
+                process(paymentsFile, customerFile, outbox, logger);
+            }
+        }
+    }
+
+    /**
+     * Processes one payments file, failures are logged and the daemon carries on with the next file.
+     */
+    private void process(Path paymentsFile, File customerFile, Path outbox, Logger logger) {
+        long startNanos = System.nanoTime();
+        Path outputDirectory = outbox.resolve(CsvFileNames.baseName(paymentsFile));
+        try {
+            reloadCustomersIfChanged(customerFile, outbox, logger);
+            Files.createDirectories(outputDirectory);
+            PipelineMetrics metrics = new PipelineMetrics();
+            RejectCounters counters = new RejectCounters();
+            PaymentPipeline.ValidatedPayments payments;
+            try (RejectSink rejects = paymentPipeline.openRejectSink(outputDirectory, logger)) {
+                payments = paymentPipeline.validatePaymentsFile(rejects, counters, customerFile,
+                        paymentsFile.toFile(), customers, metrics, false);
+            }
+            paymentPipeline.logRejectCounts("Payments", counters);
+            paymentPipeline.createReports(payments, customers, metrics, outputDirectory);
+            Files.move(paymentsFile, outputDirectory.resolve(paymentsFile.getFileName()),
+                    StandardCopyOption.REPLACE_EXISTING);
+            CONSOLE_LOGGER.info(String.format("File %s processed in %.1f ms, reports written to %s.",
+                    paymentsFile.getFileName(), (System.nanoTime() - startNanos) / 1e6, outputDirectory));
+        } catch (IOException | ExecutionException | RuntimeException exception) {
+            CONSOLE_LOGGER.log(Level.SEVERE, String.format("Processing %s failed.", paymentsFile), exception);
+        } catch (InterruptedException interruptedException) {
+            // the daemon stops after the current file
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Validates the customer file again if its size or modification time changed since it was last validated.
+     */
+    private void reloadCustomersIfChanged(File customerFile, Path outbox, Logger logger) throws IOException {
+        Path customerPath = customerFile.toPath();
+        FileTime modified = Files.getLastModifiedTime(customerPath);
+        long size = Files.size(customerPath);
+        if (customers != null && modified.equals(customerFileModified) && size == customerFileSize) {
+            return;
+        }
+        Path outputDirectory = outbox.resolve(CUSTOMER_OUTPUT_DIRECTORY);
+        Files.createDirectories(outputDirectory);
+        RejectCounters counters = new RejectCounters();
+        try (RejectSink rejects = paymentPipeline.openRejectSink(outputDirectory, logger)) {
+            customers = paymentPipeline.validateCustomerFile(rejects, counters, customerFile, new PipelineMetrics());
+        }
+        customerFileModified = modified;
+        customerFileSize = size;
+        paymentPipeline.logRejectCounts("Customers", counters);
+    }
+
+    private static boolean isPaymentsFile(Path fileName) {
+        // hidden files are skipped, so uploads can be written under a hidden name and renamed when complete
+        String name = fileName.toString();
+        return CsvFileNames.isCsv(name) && !name.startsWith(".");
+    }
+
+    private record PendingFile(long size, FileTime modified, long seenNanos) {
+        // a file which was only reported by the watch service, it is checked at the next poll
+        static final PendingFile UNSEEN = new PendingFile(-1, FileTime.fromMillis(0), 0);
+
+        boolean isSameFileAs(PendingFile other) {
+            return size == other.size && modified.equals(other.modified);
+        }
+    }
+}
@@ -0,0 +1,708 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.model.CustomerPaymentSum;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.model.StageMetrics;
+import com.codecool.homework.util.ByteRange;
+import com.codecool.homework.util.CsvFileHandler;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import com.codecool.homework.util.LuhnChecker;
+import com.codecool.homework.util.PipelineMetrics;
+import com.codecool.homework.util.RejectSink;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The stages of processing a customer and a payments file: validating the rows, aggregating the payments
+ * and writing the reports with the run summary into an output directory.
+ * Every stage is measured, the measurements are logged and written to the run summary.
+ */
+@Component
+@AllArgsConstructor
+public class PaymentPipeline {
+    // for console logging the steps of the application
+    private static final Logger CONSOLE_LOGGER = Logger.getLogger("com.codecool.homework.console.logger");
+    // chunks per validation thread, so threads finishing early can pick up more work
+    private static final int CHUNKS_PER_THREAD = 4;
+    // smaller chunks would cost more on scheduling than they gain on parallelism
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    // vectorized if the JVM was started with --add-modules jdk.incubator.vector
+    private static final LuhnChecker LUHN_CHECKER = LuhnChecker.create();
+
+    private CsvFileHandler csvFileHandler;
+    private DateValidatorForNotIsoFormat dateValidator;
+    private HomeworkProperties properties;
+    private ReportBuilder reportBuilder;
+    private ValidatedDataCache validatedDataCache;
+    private PaymentQueryServer paymentQueryServer;
+
+    /**
+     * Opens the rejects file of a run in the output directory.
+     *
+     * @param outputDirectory directory of the reports
+     * @param logger Logger for the human-readable log of the rejects
+     *
+     * @return sink of the invalid rows, has to be closed before the rejects file is complete.
+     */
+    public RejectSink openRejectSink(Path outputDirectory, Logger logger) throws IOException {
+        HomeworkProperties.Rejects rejectsProperties = properties.getRejects();
+        return new RejectSink(outputDirectory.resolve(rejectsProperties.getFile()),
+                rejectsProperties.getBufferCapacity(), rejectsProperties.getLogLimitPerReason(), logger);
+    }
+
+    /**
+     * Reads and validates the customer file.
+     *
+     * @param rejects sink of the invalid rows
+     * @param counters counters of the validation results
+     * @param customerFile customer csv file to read
+     * @param metrics metrics of the run
+     *
+     * @return index of the valid Customers.
+     */
+    public CustomerIndex validateCustomerFile(RejectSink rejects, RejectCounters counters, File customerFile,
+                                              PipelineMetrics metrics) throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("validate customers");
+        CustomerIndex customers = validateCustomers(rejects, counters, customerFile);
+        logStage(stage.finish(counters.getRowCount(), customerFile.length(), counters.getRejectCounts()));
+        CONSOLE_LOGGER.info(String.format("Data from \"%s\" successfully read.", customerFile.getName()));
+        CONSOLE_LOGGER.info("Customers data has been validated.");
+        return customers;
+    }
+
+    /**
+     * Reads and validates the payments file. In incremental mode only the payments appended since the checkpoint
+     * of the previous run are validated.
+     * In the staged pipeline the valid Payments are aggregated while the file is being validated instead of being
+     * kept in the payments table, unless they are needed for the checkpoint, the spill or the cache,
+     * or the file is compressed.
+     *
+     * @param rejects sink of the invalid rows
+     * @param counters counters of the validation results
+     * @param customerFile customer csv file the customers were read from
+     * @param paymentsFile payments csv file to read
+     * @param customers index of the valid Customers
+     * @param metrics metrics of the run
+     * @param incremental true to continue from the checkpoint of the previous run
+     *
+     * @return the valid Payments with the checkpoint to continue.
+     */
+    public ValidatedPayments validatePaymentsFile(RejectSink rejects, RejectCounters counters, File customerFile,
+                                                  File paymentsFile, CustomerIndex customers, PipelineMetrics metrics,
+                                                  boolean incremental)
+            throws IOException, InterruptedException, ExecutionException {
+        PipelineMetrics.Stage stage = metrics.start("validate payments");
+        long paymentsSize = paymentsFile.length();
+        long paymentsStart = 0;
+        long rowsBefore = 0;
+        long checkpointEnd = paymentsSize;
+        PaymentCheckpoint checkpoint = null;
+        if (incremental && csvFileHandler.isCompressed(paymentsFile)) {
+            // the appended tail of a compressed file cannot be decompressed on its own
+            CONSOLE_LOGGER.warning("Incremental mode needs an uncompressed payments file, processing all payments.");
+            incremental = false;
+        }
+        if (incremental) {
+            checkpoint = PaymentCheckpoint.resume(Path.of(properties.getIncremental().getStateFile()), customerFile,
+                    paymentsFile, properties.getReport().getAmountPrecisionBits(), CONSOLE_LOGGER);
+            paymentsStart = checkpoint.getPaymentsOffset();
+            rowsBefore = checkpoint.getPaymentsRowCount();
+            checkpointEnd = csvFileHandler.endOfLastCompleteLine(paymentsFile);
+        }
+        PaymentTable payments;
+        PaymentSpill spill = null;
+        PaymentAggregator aggregates = null;
+        long aggregatedCount = 0;
+        if (isStaged(incremental, paymentsFile)) {
+            // validated chunks are aggregated on another thread, a full queue holds back the validation
+            payments = new PaymentTable();
+            try (PaymentAggregationStage aggregation = new PaymentAggregationStage(reportBuilder,
+                    newPaymentAggregator(), properties.getPipeline().getQueueCapacity())) {
+                validatePayments(rejects, counters, paymentsFile, new ByteRange(paymentsStart, checkpointEnd),
+                        rowsBefore, customers, stage, true, aggregation::submit);
+                aggregates = aggregation.finish();
+                aggregatedCount = aggregation.getPaymentCount();
+            }
+        } else if (properties.getSpill().isEnabled()) {
+            // only the fields needed by the sums are kept, partitioned and spilled once they exceed the budget
+            payments = new PaymentTable();
+            spill = openPaymentSpill();
+            try {
+                PaymentSpill paymentSpill = spill;
+                validatePayments(rejects, counters, paymentsFile, new ByteRange(paymentsStart, checkpointEnd),
+                        rowsBefore, customers, stage, true, chunkPayments -> {
+                            for (int row = 0; row < chunkPayments.size(); row++) {
+                                paymentSpill.add(chunkPayments, row);
+                            }
+                        });
+            } catch (IOException | InterruptedException | ExecutionException | RuntimeException exception) {
+                spill.close();
+                throw exception;
+            }
+        } else {
+            payments = validatePayments(rejects, counters, paymentsFile,
+                    new ByteRange(paymentsStart, checkpointEnd), rowsBefore, customers, stage);
+        }
+        long checkpointRowCount = rowsBefore + counters.getRowCount();
+        // a last line without line terminator may still be appended to, so it is not checkpointed
+        PaymentTable uncheckpointedPayments = new PaymentTable();
+        if (checkpointEnd < paymentsSize) {
+            uncheckpointedPayments = validatePayments(rejects, counters, paymentsFile,
+                    new ByteRange(checkpointEnd, paymentsSize), checkpointRowCount, customers, stage);
+        }
+        logStage(stage.finish(counters.getRowCount(), paymentsSize - paymentsStart, counters.getRejectCounts()));
+        CONSOLE_LOGGER.info(String.format("Data from \"%s\" successfully read.", paymentsFile.getName()));
+        CONSOLE_LOGGER.info("Payments data has been validated.");
+        if (spill != null && spill.getSpilledBytes() > 0) {
+            CONSOLE_LOGGER.info(String.format("%d valid payments exceeded the memory budget, %d bytes spilled to %s.",
+                    spill.size(), spill.getSpilledBytes(), properties.getSpill().getDirectory()));
+        }
+        return new ValidatedPayments(paymentsFile, payments, uncheckpointedPayments, checkpoint, checkpointEnd,
+                checkpointRowCount, spill, aggregates, aggregatedCount);
+    }
+
+    /**
+     * @return true if the valid Payments are aggregated while validating, they are kept in memory or spilled
+     * if they are checkpointed, spilled or stored in the cache. A compressed payments file is validated
+     * as a single chunk, whose Payments would be kept in memory by the staged pipeline as well, so it is not staged.
+     */
+    private boolean isStaged(boolean incremental, File paymentsFile) {
+        return properties.getPipeline().isStaged() && !incremental && !properties.getSpill().isEnabled()
+                && !properties.getCache().isEnabled() && !csvFileHandler.isCompressed(paymentsFile);
+    }
+
+    private PaymentAggregator newPaymentAggregator() {
+        return new PaymentAggregator(properties.getReport().getAmountPrecisionBits());
+    }
+
+    private PaymentSpill openPaymentSpill() {
+        HomeworkProperties.Spill spillProperties = properties.getSpill();
+        return new PaymentSpill(Path.of(spillProperties.getDirectory()), spillProperties.getPartitions(),
+                spillProperties.getMemoryBudget().toBytes());
+    }
+
+    /**
+     * Hashes the input files for looking up and storing their validated data in the cache.
+     *
+     * @param customerFile customer csv file
+     * @param paymentsFile payments csv file
+     * @param metrics metrics of the run
+     *
+     * @return key of the input files in the cache.
+     */
+    public ValidatedDataCache.Key hashInputs(File customerFile, File paymentsFile, PipelineMetrics metrics)
+            throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("hash inputs");
+        ValidatedDataCache.Key key = validatedDataCache.keyOf(customerFile, paymentsFile);
+        logStage(stage.finish(0, customerFile.length() + paymentsFile.length(), Map.of()));
+        return key;
+    }
+
+    /**
+     * Loads the validated data of the input files from the cache.
+     *
+     * @param key key of the input files
+     * @param customerFile customer csv file
+     * @param paymentsFile payments csv file
+     * @param metrics metrics of the run
+     *
+     * @return the cached data or null if the input files have to be validated.
+     */
+    public ValidatedDataCache.CachedData loadFromCache(ValidatedDataCache.Key key, File customerFile,
+                                                       File paymentsFile, PipelineMetrics metrics) {
+        PipelineMetrics.Stage stage = metrics.start("load cache");
+        Path cacheFile = validatedDataCache.cacheFileOf(customerFile, paymentsFile);
+        ValidatedDataCache.CachedData cachedData;
+        try {
+            cachedData = validatedDataCache.load(cacheFile, key);
+        } catch (IOException | RuntimeException exception) {
+            // a broken cache file is only a cache miss, it is replaced after the validation
+            CONSOLE_LOGGER.warning(String.format("Cache file %s could not be read: %s", cacheFile, exception));
+            cachedData = null;
+        }
+        if (cachedData == null) {
+            logStage(stage.finish(0));
+            CONSOLE_LOGGER.info("No cached data for the input files, validating them.");
+            return null;
+        }
+        logStage(stage.finish(cachedData.customers().size() + cachedData.payments().size()));
+        CONSOLE_LOGGER.info(String.format("Validated data of \"%s\" and \"%s\" loaded from %s.",
+                customerFile.getName(), paymentsFile.getName(), cacheFile));
+        return cachedData;
+    }
+
+    /**
+     * Stores the validated data of the input files in the cache for the next runs.
+     *
+     * @param key key of the input files, computed before they were validated
+     * @param customerFile customer csv file
+     * @param customers index of the valid Customers
+     * @param customerCounters validation results of the customer file
+     * @param validatedPayments the valid Payments
+     * @param paymentCounters validation results of the payments file
+     * @param metrics metrics of the run
+     */
+    public void storeInCache(ValidatedDataCache.Key key, File customerFile, CustomerIndex customers,
+                             RejectCounters customerCounters, ValidatedPayments validatedPayments,
+                             RejectCounters paymentCounters, PipelineMetrics metrics) throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("store cache");
+        Path cacheFile = validatedDataCache.cacheFileOf(customerFile, validatedPayments.paymentsFile());
+        validatedDataCache.store(cacheFile, key, customers, validatedPayments.payments(), customerCounters,
+                paymentCounters);
+        logStage(stage.finish(customers.size() + validatedPayments.payments().size(), Files.size(cacheFile),
+                Map.of()));
+        CONSOLE_LOGGER.info(String.format("Validated data stored in %s.", cacheFile));
+    }
+
+    /**
+     * Logs the number of valid and rejected rows.
+     *
+     * @param data name of the validated data
+     * @param counters counters of the validation results
+     */
+    public void logRejectCounts(String data, RejectCounters counters) {
+        CONSOLE_LOGGER.info(String.format("%s: %d valid, rejected %s.", data, counters.getCount(RejectReason.VALID),
+                formatRejectCounts(counters)));
+    }
+
+    /**
+     * Aggregates the validated Payments, saves the checkpoint in incremental mode,
+     * then writes the reports and the run summary.
+     *
+     * @param validatedPayments the valid Payments
+     * @param customers index of the valid Customers
+     * @param metrics metrics of the run
+     * @param outputDirectory directory of the reports
+     */
+    public void createReports(ValidatedPayments validatedPayments, CustomerIndex customers, PipelineMetrics metrics,
+                              Path outputDirectory) throws IOException {
+        // summing up the payments per customer and per webshop in one pass
+        // in incremental mode the sums of the previous runs are continued and checkpointed for the next run
+        PipelineMetrics.Stage stage = metrics.start("aggregate payments");
+        PaymentCheckpoint checkpoint = validatedPayments.checkpoint();
+        PaymentAggregator aggregates = checkpoint != null ? checkpoint.getAggregates()
+                : validatedPayments.aggregates() != null ? validatedPayments.aggregates()
+                : newPaymentAggregator();
+        reportBuilder.aggregatePayments(aggregates, validatedPayments.payments());
+        if (validatedPayments.spill() != null) {
+            aggregateSpill(validatedPayments.spill(), aggregates);
+        }
+        if (checkpoint != null) {
+            checkpoint.advance(validatedPayments.paymentsFile(), validatedPayments.checkpointEnd(),
+                    validatedPayments.checkpointRowCount());
+            checkpoint.save(Path.of(properties.getIncremental().getStateFile()));
+            CONSOLE_LOGGER.info(String.format("Checkpoint saved after row %d of %s.",
+                    validatedPayments.checkpointRowCount(), validatedPayments.paymentsFile().getName()));
+        }
+        reportBuilder.aggregatePayments(aggregates, validatedPayments.uncheckpointedPayments());
+        List<CustomerPaymentSum> customerPaymentSums = reportBuilder.collectCustomerPaymentSums(
+                customers.getCustomers(), aggregates);
+        logStage(stage.finish(validatedPayments.getPaymentCount()));
+        // the aggregates of the run replace the ones the queries are answered from, the jobs of a batch would
+        // replace each other's
+        if (properties.getQuery().isEnabled() && !properties.getBatch().isEnabled()) {
+            paymentQueryServer.publish(new PaymentQueryIndex(validatedPayments.paymentsFile().getName(),
+                    validatedPayments.getPaymentCount(), customerPaymentSums, aggregates));
+        }
+        // every report is created and written by a task of its own, running at the same time if the Payments were
+        // validated by the staged pipeline
+        int topK = properties.getReport().getTopK();
+        int topKPerWebshop = properties.getReport().getTopKPerWebshop();
+        List<Callable<Void>> reportTasks = new ArrayList<>();
+        // report of customer payment sum
+        reportTasks.add(() -> createReport(metrics, outputDirectory, "report01.csv",
+                () -> reportBuilder.createReportOfCustomersBySumPayment(customerPaymentSums)));
+        // top K report from customer payment sums
+        reportTasks.add(() -> createReport(metrics, outputDirectory, "top.csv",
+                () -> reportBuilder.createReportOfTopCustomersByPaymentSum(customerPaymentSums, topK)));
+        // top K per webshop report if requested
+        if (topKPerWebshop > 0) {
+            reportTasks.add(() -> createReport(metrics, outputDirectory, "top_webshop.csv",
+                    () -> reportBuilder.createReportOfTopCustomersPerWebshopByPaymentSum(customerPaymentSums,
+                            topKPerWebshop)));
+        }
+        // report of webshops by different payment sums
+        reportTasks.add(() -> createReport(metrics, outputDirectory, "report02.csv",
+                () -> reportBuilder.createReportOfWebshopsByPaymentSums(aggregates)));
+        // report of webshops by monthly and daily payment sums
+        reportTasks.add(() -> createReport(metrics, outputDirectory, "report03.csv",
+                () -> reportBuilder.createReportOfWebshopsByPaymentDate(aggregates)));
+        // report of the distribution of the payment amounts of the webshops by payment type
+        reportTasks.add(() -> createReport(metrics, outputDirectory, "report04.csv",
+                () -> reportBuilder.createReportOfWebshopAmountDistributions(aggregates)));
+        runReportTasks(reportTasks, validatedPayments.isStaged());
+        // writing the measurements of the run for monitoring
+        String summaryFile = properties.getMetrics().getSummaryFile();
+        metrics.writeSummary(outputDirectory.resolve(summaryFile));
+        CONSOLE_LOGGER.info(String.format("Run summary \"%s\" successfully created.", summaryFile));
+    }
+
+    /**
+     * Aggregates the partitions of spilled Payments in parallel, each into sums of its own,
+     * then adds the sums of the partitions in partition order and deletes the spill files.
+     *
+     * @param spill the spilled Payments
+     * @param aggregates sums to add the Payments to
+     */
+    private void aggregateSpill(PaymentSpill spill, PaymentAggregator aggregates) throws IOException {
+        try (spill) {
+            List<Callable<PaymentAggregator>> tasks = new ArrayList<>();
+            for (int partition = 0; partition < spill.getPartitionCount(); partition++) {
+                int spillPartition = partition;
+                tasks.add(() -> {
+                    PaymentAggregator partitionAggregates = newPaymentAggregator();
+                    spill.aggregatePartition(spillPartition, partitionAggregates);
+                    return partitionAggregates;
+                });
+            }
+            ForkJoinPool pool = new ForkJoinPool(validationThreads());
+            try {
+                for (Future<PaymentAggregator> future : pool.invokeAll(tasks)) {
+                    aggregates.addAll(future.get());
+                }
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Aggregating the spilled payments was interrupted.", interruptedException);
+            } catch (ExecutionException executionException) {
+                throw new IOException("Aggregating the spilled payments failed.", executionException.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Payments validated from one payments file.
+     *
+     * @param paymentsFile the payments csv file
+     * @param payments valid Payments up to the checkpoint end
+     * @param uncheckpointedPayments valid Payments of a last line without line terminator
+     * @param checkpoint checkpoint to continue in incremental mode, null otherwise
+     * @param checkpointEnd offset of the file the checkpoint is advanced to
+     * @param checkpointRowCount number of rows before the checkpoint end
+     * @param spill valid Payments up to the checkpoint end kept in bounded memory instead of the payments table,
+     *              null if the Payments are kept in memory
+     * @param aggregates sums of the valid Payments aggregated while validating in the staged pipeline
+     *                   instead of keeping them in the payments table, null otherwise
+     * @param aggregatedCount number of the Payments in the aggregates
+     */
+    public record ValidatedPayments(File paymentsFile, PaymentTable payments, PaymentTable uncheckpointedPayments,
+                                    PaymentCheckpoint checkpoint, long checkpointEnd, long checkpointRowCount,
+                                    PaymentSpill spill, PaymentAggregator aggregates, long aggregatedCount) {
+
+        /**
+         * @return all Payments of a payments file validated without checkpoint.
+         */
+        public static ValidatedPayments of(File paymentsFile, PaymentTable payments, long rowCount) {
+            return new ValidatedPayments(paymentsFile, payments, new PaymentTable(), null, paymentsFile.length(),
+                    rowCount, null, null, 0);
+        }
+
+        /**
+         * @return true if the Payments were aggregated while validating them in the staged pipeline.
+         */
+        public boolean isStaged() {
+            return aggregates != null;
+        }
+
+        /**
+         * @return number of valid Payments, in memory or spilled.
+         */
+        public long getPaymentCount() {
+            return payments.size() + uncheckpointedPayments.size() + (spill == null ? 0 : spill.size())
+                    + aggregatedCount;
+        }
+    }
+
+    /**
+     * Validates each customer while reading the rows of the customer file.
+     *
+     * @param rejects sink of the invalid rows
+     * @param counters counters of the validation results
+     * @param customerFile customer csv file to read
+     *
+     * @return index of Customers.
+     *
+     * @author Bálint Mészáros
+     */
+    private CustomerIndex validateCustomers(RejectSink rejects, RejectCounters counters, File customerFile)
+            throws IOException {
+        String source = customerFile.getName();
+        CustomerIndex customers = new CustomerIndex();
+        collectDuplicateCustomerIds(customerFile, customers);
+        CustomerValidator validator = new CustomerValidator(customers, counters);
+        // validating each customer, the raw row is only decoded if it is rejected
+        csvFileHandler.forEachRow(customerFile, row -> {
+            RejectReason reason = validator.validate(row);
+            if (reason == RejectReason.VALID) {
+                customers.add(CustomerIndex.keyOf(row, 0, 1), validator.createCustomer(row));
+            } else {
+                rejects.reject(source, row.getRowNumber(), reason, row.getLine());
+            }
+        });
+        return customers;
+    }
+
+    /**
+     * Marks duplicate customer ids in the index.
+     *
+     * @param customerFile customer csv file to read
+     * @param customers index to mark the duplicate keys in
+     *
+     * @author Bálint Mészáros
+     */
+    private void collectDuplicateCustomerIds(File customerFile, CustomerIndex customers) throws IOException {
+        // checking if there are duplicate entries with same id, malformed ids are rejected later anyway
+        csvFileHandler.forEachRow(customerFile, row -> {
+            int key = CustomerIndex.keyOf(row, 0, 1);
+            if (key != CustomerIndex.INVALID_KEY) {
+                customers.markSeen(key);
+            }
+        });
+    }
+
+    /**
+     * Validates each payment while reading the rows of a byte range of the payments file.
+     * The range is split into line aligned chunks validated in parallel, the results are merged in file order.
+     *
+     * @param rejects sink of the invalid rows
+     * @param counters counters of the validation results
+     * @param paymentsFile payments csv file to read
+     * @param range line aligned byte range of the file to validate
+     * @param rowsBefore number of rows in the file before the range
+     * @param customers index of validated Customers
+     * @param stage metrics of the stage, the allocation of the validating threads is added to it
+     *
+     * @return table of Payments.
+     *
+     * @author Bálint Mészáros
+     */
+    /* Table of rows due to the fact that there can be duplicate entries,
+    if the customer did the exact same payment multiple times at the same day
+    (not storing time of payment, just the date) */
+    private PaymentTable validatePayments(RejectSink rejects, RejectCounters counters, File paymentsFile,
+                                          ByteRange range, long rowsBefore, CustomerIndex customers,
+                                          PipelineMetrics.Stage stage)
+            throws IOException, InterruptedException, ExecutionException {
+        PaymentTable payments = new PaymentTable();
+        validatePayments(rejects, counters, paymentsFile, range, rowsBefore, customers, stage, false,
+                payments::addAll);
+        return payments;
+    }
+
+    /**
+     * Validates the payments in a byte range of the payments file in parallel chunks,
+     * passing the valid Payments of each chunk on in file order.
+     * With bounded chunks the range is split into chunks of MIN_CHUNK_SIZE, and only a window of
+     * homework.pipeline.queue-capacity chunks, but at least one per thread, is validated or waiting at a time,
+     * so the Payments waiting in memory do not grow with the size of the file.
+     *
+     * @param rejects sink of the invalid rows
+     * @param counters counters of the validation results
+     * @param paymentsFile payments csv file to read
+     * @param range line aligned byte range of the file to validate
+     * @param rowsBefore number of rows in the file before the range
+     * @param customers index of validated Customers
+     * @param stage metrics of the stage, the allocation of the validating threads is added to it
+     * @param boundedChunks true to validate chunks of bounded size
+     * @param validPayments called with the valid Payments of every chunk
+     */
+    private void validatePayments(RejectSink rejects, RejectCounters counters, File paymentsFile, ByteRange range,
+                                  long rowsBefore, CustomerIndex customers, PipelineMetrics.Stage stage,
+                                  boolean boundedChunks, ChunkConsumer validPayments)
+            throws IOException, InterruptedException, ExecutionException {
+        int threads = validationThreads();
+        long chunkCount = Math.max(1, Math.min(threads * CHUNKS_PER_THREAD, range.length() / MIN_CHUNK_SIZE));
+        if (boundedChunks) {
+            chunkCount = Math.max(chunkCount, (range.length() + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        }
+        List<ByteRange> chunks = csvFileHandler.splitIntoChunks(paymentsFile, range,
+                (int) Math.min(chunkCount, Integer.MAX_VALUE));
+        int window = boundedChunks ? Math.max(threads, properties.getPipeline().getQueueCapacity()) : chunks.size();
+        String source = paymentsFile.getName();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Deque<Future<PaymentChunk>> validatingChunks = new ArrayDeque<>();
+        try {
+            Iterator<ByteRange> remainingChunks = chunks.iterator();
+            while (validatingChunks.size() < window && remainingChunks.hasNext()) {
+                validatingChunks.add(submitPaymentChunk(pool, paymentsFile, remainingChunks.next(), customers,
+                        counters));
+            }
+            // the chunks are taken in file order, so the merged result does not depend on the scheduling,
+            // the next chunk is submitted as soon as one is taken and validated while that one is passed on
+            long rowsBeforeChunk = rowsBefore;
+            while (!validatingChunks.isEmpty()) {
+                PaymentChunk paymentChunk = validatingChunks.poll().get();
+                if (remainingChunks.hasNext()) {
+                    validatingChunks.add(submitPaymentChunk(pool, paymentsFile, remainingChunks.next(), customers,
+                            counters));
+                }
+                stage.addAllocatedBytes(paymentChunk.allocatedBytes());
+                validPayments.accept(paymentChunk.payments());
+                for (PaymentChunkValidator.Reject reject : paymentChunk.rejects()) {
+                    rejects.reject(source, rowsBeforeChunk + reject.rowNumber(), reject.reason(),
+                            reject.rawRow());
+                }
+                rowsBeforeChunk += paymentChunk.rowCount();
+            }
+        } finally {
+            // chunks still validating after a failure are not needed anymore
+            for (Future<PaymentChunk> validatingChunk : validatingChunks) {
+                validatingChunk.cancel(true);
+            }
+            pool.shutdown();
+        }
+    }
+
+    private Future<PaymentChunk> submitPaymentChunk(ForkJoinPool pool, File paymentsFile, ByteRange chunk,
+                                                    CustomerIndex customers, RejectCounters counters) {
+        return pool.submit(() -> validatePaymentChunk(paymentsFile, chunk, customers, counters));
+    }
+
+    /**
+     * @return number of threads validating a payments file, in batch mode the processors are shared by the jobs.
+     */
+    private int validationThreads() {
+        if (properties.getValidation().getThreads() > 0) {
+            return properties.getValidation().getThreads();
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (properties.getBatch().isEnabled()) {
+            return Math.max(1, processors / Math.max(1, properties.getBatch().getJobs()));
+        }
+        return processors;
+    }
+
+    /**
+     * Validates the payments in one chunk of the payments file.
+     * Invalid data is collected with chunk relative row numbers, so it can be rejected in file order after merging.
+     *
+     * @param paymentsFile payments csv file to read
+     * @param chunk line aligned byte range of the file
+     * @param customers index of validated Customers
+     * @param counters counters of the validation results
+     *
+     * @return valid Payments, invalid rows and allocated bytes of the chunk.
+     */
+    private PaymentChunk validatePaymentChunk(File paymentsFile, ByteRange chunk, CustomerIndex customers,
+                                              RejectCounters counters) throws IOException {
+        long startAllocatedBytes = PipelineMetrics.currentThreadAllocatedBytes();
+        PaymentChunkValidator validator = new PaymentChunkValidator(
+                new PaymentValidator(customers, dateValidator, counters), counters, LUHN_CHECKER);
+        long rowCount = csvFileHandler.forEachRow(paymentsFile, chunk, validator);
+        validator.finish();
+        long allocatedBytes = startAllocatedBytes < 0
+                ? 0
+                : PipelineMetrics.currentThreadAllocatedBytes() - startAllocatedBytes;
+        return new PaymentChunk(validator.getPayments(), validator.getRejects(), rowCount, allocatedBytes);
+    }
+
+    /**
+     * Receives the valid Payments of the chunks of a payments file.
+     */
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(PaymentTable payments) throws IOException;
+    }
+
+    private record PaymentChunk(PaymentTable payments, List<PaymentChunkValidator.Reject> rejects, long rowCount,
+                                long allocatedBytes) {
+    }
+
+    /**
+     * Runs the tasks creating the reports, all at the same time in the staged pipeline, one by one otherwise.
+     *
+     * @param reportTasks tasks creating and writing one report each
+     * @param staged true if the Payments were validated by the staged pipeline
+     */
+    private void runReportTasks(List<Callable<Void>> reportTasks, boolean staged) throws IOException {
+        if (!staged) {
+            for (Callable<Void> reportTask : reportTasks) {
+                try {
+                    reportTask.call();
+                } catch (IOException | RuntimeException exception) {
+                    throw exception;
+                } catch (Exception exception) {
+                    throw new IOException("Creating a report failed.", exception);
+                }
+            }
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(reportTasks.size());
+        try {
+            for (Future<Void> future : pool.invokeAll(reportTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Creating the reports was interrupted.", interruptedException);
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Creating a report failed.", executionException.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Creates a report and writes it to a csv file, both measured as stages of their own.
+     *
+     * @param metrics metrics of the run
+     * @param outputDirectory directory of the reports
+     * @param filename name of the csv file
+     * @param reportCreator creates the rows of the report
+     *
+     * @return nothing, for running it as a Callable.
+     */
+    private Void createReport(PipelineMetrics metrics, Path outputDirectory, String filename,
+                              Supplier<Collection<String>> reportCreator) throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("create " + filename);
+        Collection<String> report = reportCreator.get();
+        logStage(stage.finish(report.size()));
+        writeReport(metrics, report, outputDirectory, filename);
+        return null;
+    }
+
+    /**
+     * Writes a report to a csv file and measures it as a stage of its own.
+     *
+     * @param metrics metrics of the run
+     * @param report rows of the report
+     * @param outputDirectory directory of the reports
+     * @param filename name of the csv file
+     */
+    private void writeReport(PipelineMetrics metrics, Collection<String> report, Path outputDirectory,
+                             String filename) throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("write " + filename);
+        File reportFile = outputDirectory.resolve(filename).toFile();
+        csvFileHandler.writeCsvData(report, reportFile.getPath());
+        logStage(stage.finish(report.size(), reportFile.length(), Map.of()));
+        CONSOLE_LOGGER.info(String.format("Report \"%s\" successfully created.", filename));
+    }
+
+    private static void logStage(StageMetrics stage) {
+        CONSOLE_LOGGER.info(String.format(
+                "Stage \"%s\": %d rows in %.1f ms (%.0f rows/s), %d bytes, %d bytes allocated.",
+                stage.name(), stage.rows(), stage.wallNanos() / 1e6, stage.getRowsPerSecond(), stage.bytes(),
+                stage.allocatedBytes()));
+    }
+
+    private static String formatRejectCounts(RejectCounters counters) {
+        return String.format("%d %s", counters.getRejectedCount(), counters.getRejectCounts());
+    }
+}
@@ -0,0 +1,145 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.CustomerPaymentSum;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the aggregates of a finished run for answering queries without reading the reports.
+ * Customers and webshops are addressed by their CustomerIndex key and webshop number, and the customers are
+ * ranked by sum once when the snapshot is built, so every query is an array lookup or a copy of a ranking prefix.
+ */
+public class PaymentQueryIndex {
+    private final String source;
+    private final Instant createdAt;
+    private final long paymentCount;
+    // sums of the validated customers by CustomerIndex key, null for keys without a customer
+    private final CustomerPaymentSum[] customerSums = new CustomerPaymentSum[CustomerIndex.CAPACITY];
+    // all customers by sum, highest first, ties ordered by webshop id and customer id
+    private final CustomerPaymentSum[] ranking;
+    // the customers of each webshop by sum, null for webshops without customers
+    private final CustomerPaymentSum[][] webshopRankings = new CustomerPaymentSum[CustomerIndex.WEBSHOP_CAPACITY][];
+    // webshop sums by webshop number, null for webshops without payments
+    private final WebshopPaymentSums[] webshopSums = new WebshopPaymentSums[CustomerIndex.WEBSHOP_CAPACITY];
+
+    /**
+     * @param source name of the payments file the aggregates were computed from
+     * @param paymentCount number of the aggregated Payments
+     * @param customerPaymentSums sums of payment of the validated Customers
+     * @param aggregates sums of the validated Payments, only read while the snapshot is built
+     */
+    public PaymentQueryIndex(String source, long paymentCount, List<CustomerPaymentSum> customerPaymentSums,
+                             PaymentAggregator aggregates) {
+        this.source = source;
+        this.createdAt = Instant.now();
+        this.paymentCount = paymentCount;
+        ranking = customerPaymentSums.toArray(new CustomerPaymentSum[0]);
+        Arrays.sort(ranking, ReportBuilder.BY_SUM_DESCENDING);
+        int[] webshopCustomerCounts = new int[CustomerIndex.WEBSHOP_CAPACITY];
+        for (CustomerPaymentSum customerPaymentSum : ranking) {
+            customerSums[customerPaymentSum.key()] = customerPaymentSum;
+            webshopCustomerCounts[customerPaymentSum.key() / 100]++;
+        }
+        // the ranking is split by webshop keeping its order
+        for (CustomerPaymentSum customerPaymentSum : ranking) {
+            int webshopNumber = customerPaymentSum.key() / 100;
+            if (webshopRankings[webshopNumber] == null) {
+                webshopRankings[webshopNumber] = new CustomerPaymentSum[webshopCustomerCounts[webshopNumber]];
+                webshopCustomerCounts[webshopNumber] = 0;
+            }
+            webshopRankings[webshopNumber][webshopCustomerCounts[webshopNumber]++] = customerPaymentSum;
+        }
+        for (int webshopNumber : aggregates.getWebshopNumbers()) {
+            webshopSums[webshopNumber] = new WebshopPaymentSums(aggregates.getWebshopId(webshopNumber),
+                    aggregates.getWebshopCardSum(webshopNumber), aggregates.getWebshopTransferSum(webshopNumber));
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    /**
+     * @param webshopId webshop id in WS## format
+     * @param customerId customer id in A## format
+     *
+     * @return sum of payment of the Customer, null if there is no such validated Customer.
+     */
+    public CustomerPaymentSum getCustomerSum(String webshopId, String customerId) {
+        int key = CustomerIndex.keyOf(webshopId, customerId);
+        return key == CustomerIndex.INVALID_KEY ? null : customerSums[key];
+    }
+
+    /**
+     * @param webshopId webshop id in WS## format
+     *
+     * @return card and transfer sums of the webshop, null if the webshop has no valid Payment.
+     */
+    public WebshopPaymentSums getWebshopSums(String webshopId) {
+        int webshopNumber = CustomerIndex.webshopNumberOf(webshopId);
+        return webshopNumber == CustomerIndex.INVALID_KEY ? null : webshopSums[webshopNumber];
+    }
+
+    /**
+     * @return card and transfer sums of the webshops with valid Payments, in ascending order of webshop id.
+     */
+    public List<WebshopPaymentSums> getWebshopSums() {
+        List<WebshopPaymentSums> sums = new ArrayList<>();
+        for (WebshopPaymentSums webshopPaymentSums : webshopSums) {
+            if (webshopPaymentSums != null) {
+                sums.add(webshopPaymentSums);
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Ties are ordered by webshop id and customer id, the same way as in top.csv.
+     *
+     * @param k maximum number of Customers
+     *
+     * @return top K Customers by sum of payment.
+     */
+    public List<CustomerPaymentSum> getTopCustomers(int k) {
+        return List.of(Arrays.copyOf(ranking, Math.min(Math.max(k, 0), ranking.length)));
+    }
+
+    /**
+     * Ties are ordered by customer id, the same way as in top_webshop.csv.
+     *
+     * @param webshopId webshop id in WS## format
+     * @param k maximum number of Customers
+     *
+     * @return top K Customers of the webshop by sum of payment, empty if the webshop has no validated Customer.
+     */
+    public List<CustomerPaymentSum> getTopCustomers(String webshopId, int k) {
+        int webshopNumber = CustomerIndex.webshopNumberOf(webshopId);
+        if (webshopNumber == CustomerIndex.INVALID_KEY || webshopRankings[webshopNumber] == null) {
+            return List.of();
+        }
+        CustomerPaymentSum[] webshopRanking = webshopRankings[webshopNumber];
+        return List.of(Arrays.copyOf(webshopRanking, Math.min(Math.max(k, 0), webshopRanking.length)));
+    }
+
+    /**
+     * Sums of payment of one webshop by payment type.
+     *
+     * @param webshopId webshop id as read from the csv
+     * @param cardSum sum of the card payments
+     * @param transferSum sum of the transfer payments
+     */
+    public record WebshopPaymentSums(String webshopId, BigInteger cardSum, BigInteger transferSum) {
+    }
+}
@@ -0,0 +1,235 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.CustomerPaymentSum;
+import com.codecool.homework.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP endpoint answering queries about the aggregates of the last finished run as JSON:
+ * <ul>
+ *     <li>GET /status - source and time of the current snapshot</li>
+ *     <li>GET /customers/{webshopId}/{customerId} - sum of payment of a customer</li>
+ *     <li>GET /webshops and /webshops/{webshopId} - card and transfer sums of the webshops</li>
+ *     <li>GET /top?k=N and /top/{webshopId}?k=N - top K customers by sum of payment</li>
+ * </ul>
+ * Queries are answered from the PaymentQueryIndex published last, a new run replaces it with a single reference
+ * swap, so a query never sees the aggregates of two runs mixed.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentQueryServer implements Closeable {
+    // for console logging the steps of the application
+    private static final Logger CONSOLE_LOGGER = Logger.getLogger("com.codecool.homework.console.logger");
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final HomeworkProperties properties;
+
+    private final AtomicReference<PaymentQueryIndex> index = new AtomicReference<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Starts listening on the configured host and port, does nothing if already started.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        HomeworkProperties.Query query = properties.getQuery();
+        server = HttpServer.create(new InetSocketAddress(query.getHost(), query.getPort()), 0);
+        executor = Executors.newFixedThreadPool(Math.max(1, query.getThreads()));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        CONSOLE_LOGGER.info(String.format("Serving queries on http://%s:%d/.", query.getHost(), getPort()));
+    }
+
+    /**
+     * @return port the server listens on, the chosen one if the configured port is 0.
+     */
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Replaces the aggregates the queries are answered from.
+     *
+     * @param snapshot aggregates of a finished run
+     */
+    public void publish(PaymentQueryIndex snapshot) {
+        index.set(snapshot);
+    }
+
+    public PaymentQueryIndex getIndex() {
+        return index.get();
+    }
+
+    /**
+     * Blocks until the server is closed or the thread is interrupted.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops the server, also when the application context is closed.
+     */
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+        }
+        stopped.countDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, error("Only GET is supported."));
+                return;
+            }
+            PaymentQueryIndex snapshot = index.get();
+            if (snapshot == null) {
+                respond(exchange, 503, error("No run has finished yet."));
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            String[] path = uri.getPath().replaceAll("^/+|/+$", "").split("/+");
+            String json;
+            try {
+                json = answer(snapshot, path, uri.getRawQuery());
+            } catch (IllegalArgumentException badRequest) {
+                respond(exchange, 400, error(badRequest.getMessage()));
+                return;
+            }
+            if (json == null) {
+                respond(exchange, 404, error("Not found: " + uri.getPath()));
+            } else {
+                respond(exchange, 200, json);
+            }
+        }
+    }
+
+    /**
+     * @return JSON answer to the query, null if the path or the queried customer or webshop does not exist.
+     */
+    private String answer(PaymentQueryIndex snapshot, String[] path, String query) {
+        switch (path[0]) {
+            case "status":
+                if (path.length == 1) {
+                    return "{\"source\": \"" + Json.escape(snapshot.getSource()) + "\", \"createdAt\": \""
+                            + snapshot.getCreatedAt() + "\", \"payments\": " + snapshot.getPaymentCount() + "}";
+                }
+                return null;
+            case "customers":
+                if (path.length == 3) {
+                    CustomerPaymentSum customerPaymentSum = snapshot.getCustomerSum(path[1], path[2]);
+                    return customerPaymentSum == null ? null : toJson(customerPaymentSum);
+                }
+                return null;
+            case "webshops":
+                if (path.length == 1) {
+                    StringBuilder json = new StringBuilder("[");
+                    for (PaymentQueryIndex.WebshopPaymentSums webshopPaymentSums : snapshot.getWebshopSums()) {
+                        json.append(json.length() == 1 ? "" : ", ").append(toJson(webshopPaymentSums));
+                    }
+                    return json.append(']').toString();
+                }
+                if (path.length == 2) {
+                    PaymentQueryIndex.WebshopPaymentSums webshopPaymentSums = snapshot.getWebshopSums(path[1]);
+                    return webshopPaymentSums == null ? null : toJson(webshopPaymentSums);
+                }
+                return null;
+            case "top":
+                if (path.length == 1) {
+                    return toJson(snapshot.getTopCustomers(parseK(query)));
+                }
+                if (path.length == 2) {
+                    return toJson(snapshot.getTopCustomers(path[1], parseK(query)));
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the k parameter of the query string, the size of top.csv if it is not given.
+     */
+    private int parseK(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("k=")) {
+                    try {
+                        int k = Integer.parseInt(parameter.substring(2));
+                        if (k >= 0) {
+                            return k;
+                        }
+                    } catch (NumberFormatException notANumber) {
+                        // reported below
+                    }
+                    throw new IllegalArgumentException("k must be a non-negative integer.");
+                }
+            }
+        }
+        return properties.getReport().getTopK();
+    }
+
+    private static String toJson(CustomerPaymentSum customerPaymentSum) {
+        Customer customer = customerPaymentSum.customer();
+        return "{\"webshopId\": \"" + Json.escape(customer.getWebshopId()) + "\", \"customerId\": \""
+                + Json.escape(customer.getId()) + "\", \"name\": \"" + Json.escape(customer.getName())
+                + "\", \"address\": \"" + Json.escape(customer.getAddress()) + "\", \"sum\": "
+                + customerPaymentSum.sum() + "}";
+    }
+
+    private static String toJson(PaymentQueryIndex.WebshopPaymentSums webshopPaymentSums) {
+        return "{\"webshopId\": \"" + Json.escape(webshopPaymentSums.webshopId()) + "\", \"card\": "
+                + webshopPaymentSums.cardSum() + ", \"transfer\": " + webshopPaymentSums.transferSum() + "}";
+    }
+
+    private static String toJson(List<CustomerPaymentSum> customerPaymentSums) {
+        StringBuilder json = new StringBuilder("[");
+        for (CustomerPaymentSum customerPaymentSum : customerPaymentSums) {
+            json.append(json.length() == 1 ? "" : ", ").append(toJson(customerPaymentSum));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\": \"" + Json.escape(message) + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.codecool.homework.dataprocessor;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Validated Payments kept in a bounded amount of memory for aggregation.
+ * Only the fields used by the sums are kept, in fixed size binary records hash-partitioned by customer key.
+ * Every partition gets an equal share of the memory budget, once its buffer is full it is appended to the spill
+ * file of the partition, so a partition holds all Payments of its customers and can be aggregated independently.
+ */
+public class PaymentSpill implements Closeable {
+    // customer key, epoch day, amount and card flag
+    private static final int RECORD_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + 1;
+    private static final int INITIAL_BUFFER_SIZE = 64 * RECORD_SIZE;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    // maximum size of the buffer of a partition, a multiple of the record size
+    private final int partitionBudget;
+    private final ByteBuffer[] buffers;
+    // spill file of each partition, null until the partition is spilled the first time
+    private final Path[] spillFiles;
+    // webshop ids as they were read from the csv, indexed by webshop number
+    private final String[] webshopIds = new String[CustomerIndex.WEBSHOP_CAPACITY];
+    private long size;
+    private long spilledBytes;
+
+    /**
+     * @param directory directory of the spill files, created when the budget is exceeded the first time
+     * @param partitionCount number of partitions
+     * @param memoryBudget maximum number of bytes buffered by all partitions together
+     *
+     * @throws IllegalArgumentException if the number of partitions is less than 1
+     */
+    public PaymentSpill(Path directory, int partitionCount, long memoryBudget) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("homework.spill.partitions must be at least 1: " + partitionCount);
+        }
+        this.directory = directory;
+        long partitionRecords = Math.min(memoryBudget / partitionCount, Integer.MAX_VALUE / 2) / RECORD_SIZE;
+        this.partitionBudget = (int) Math.max(1, partitionRecords) * RECORD_SIZE;
+        this.buffers = new ByteBuffer[partitionCount];
+        this.spillFiles = new Path[partitionCount];
+        for (int partition = 0; partition < partitionCount; partition++) {
+            buffers[partition] = ByteBuffer.allocate(Math.min(INITIAL_BUFFER_SIZE, partitionBudget));
+        }
+    }
+
+    /**
+     * Adds a validated Payment to the partition of its customer, spilling the partition if its buffer is full.
+     *
+     * @param payments table of validated Payments
+     * @param row row of the Payment in the table
+     */
+    public void add(PaymentTable payments, int row) throws IOException {
+        int customerKey = payments.getCustomerKey(row);
+        int webshopNumber = customerKey / 100;
+        if (webshopIds[webshopNumber] == null) {
+            webshopIds[webshopNumber] = payments.getWebshopId(row);
+        }
+        int partition = partitionOf(customerKey);
+        ByteBuffer buffer = buffers[partition];
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() < partitionBudget) {
+                buffer = grow(partition);
+            } else {
+                spill(partition);
+            }
+        }
+        buffer.putInt(customerKey)
+                .putInt(payments.getEpochDayOfPayment(row))
+                .putLong(payments.getAmountPayed(row))
+                .put((byte) (payments.isCard(row) ? 1 : 0));
+        size++;
+    }
+
+    /**
+     * @return number of Payments added.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes written to the spill files, 0 if the Payments fit into the budget.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public int getPartitionCount() {
+        return buffers.length;
+    }
+
+    /**
+     * Adds the Payments of a partition to the sums, first the spilled then the buffered ones.
+     * Partitions are independent, so different partitions can be aggregated on different threads.
+     *
+     * @param partition partition to aggregate
+     * @param aggregator sums to add the Payments to
+     */
+    public void aggregatePartition(int partition, PaymentAggregator aggregator) throws IOException {
+        if (spillFiles[partition] != null) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(spillFiles[partition]), READ_BUFFER_SIZE))) {
+                while (true) {
+                    int customerKey;
+                    try {
+                        customerKey = input.readInt();
+                    } catch (EOFException endOfPartition) {
+                        break;
+                    }
+                    int epochDay = input.readInt();
+                    long amount = input.readLong();
+                    boolean card = input.readByte() == 1;
+                    aggregator.add(customerKey, webshopIds[customerKey / 100], card, amount, epochDay);
+                }
+            }
+        }
+        ByteBuffer buffer = buffers[partition].duplicate().flip();
+        while (buffer.hasRemaining()) {
+            int customerKey = buffer.getInt();
+            int epochDay = buffer.getInt();
+            long amount = buffer.getLong();
+            boolean card = buffer.get() == 1;
+            aggregator.add(customerKey, webshopIds[customerKey / 100], card, amount, epochDay);
+        }
+    }
+
+    /**
+     * Deletes the spill files.
+     */
+    @Override
+    public void close() throws IOException {
+        for (int partition = 0; partition < spillFiles.length; partition++) {
+            if (spillFiles[partition] != null) {
+                Files.deleteIfExists(spillFiles[partition]);
+                spillFiles[partition] = null;
+            }
+            buffers[partition] = ByteBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Appends the buffered records of a partition to its spill file and empties the buffer.
+     */
+    private void spill(int partition) throws IOException {
+        ByteBuffer buffer = buffers[partition];
+        if (spillFiles[partition] == null) {
+            Files.createDirectories(directory);
+            spillFiles[partition] = Files.createTempFile(directory, "payments-" + partition + "-", ".spill");
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(spillFiles[partition], StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                spilledBytes += channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Doubles the buffer of a partition, at most to the share of the partition in the memory budget.
+     */
+    private ByteBuffer grow(int partition) {
+        ByteBuffer buffer = buffers[partition];
+        ByteBuffer grown = ByteBuffer.allocate((int) Math.min(buffer.capacity() * 2L, partitionBudget));
+        grown.put(buffer.flip());
+        buffers[partition] = grown;
+        return grown;
+    }
+
+    private int partitionOf(int customerKey) {
+        // consecutive customers of a webshop are spread over the partitions
+        int hash = customerKey * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), buffers.length);
+    }
+}
@@ -0,0 +1,264 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.util.CsvRow;
+import com.codecool.homework.util.StringDictionary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The validated Payments of a payments file as columns of primitive arrays, one row per Payment.
+ * Customers are stored as their CustomerIndex key, the webshop and customer ids and the Customer itself are
+ * looked up from it, dates as epoch days. Bank account and card numbers are dictionary encoded,
+ * so a Payment costs 25 bytes plus its distinct numbers instead of an object with seven Strings.
+ * Not thread-safe, the chunks of a file are validated into tables of their own and merged with addAll.
+ */
+public class PaymentTable {
+    private static final int INITIAL_CAPACITY = 16;
+    // values of the type column, also stored in the ValidatedDataCache files
+    static final byte TRANSFER = 0;
+    static final byte CARD = 1;
+
+    private int[] customerKeys;
+    private byte[] types;
+    private long[] amounts;
+    private int[] epochDays;
+    private int[] bankAccountNumbers;
+    private int[] cardNumbers;
+    private int size;
+    // bank account and card numbers
+    private final StringDictionary numbers;
+    // webshop ids as they were read from the csv, indexed by webshop number
+    private final String[] webshopIds;
+
+    public PaymentTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public PaymentTable(int capacity) {
+        capacity = Math.max(1, capacity);
+        customerKeys = new int[capacity];
+        types = new byte[capacity];
+        amounts = new long[capacity];
+        epochDays = new int[capacity];
+        bankAccountNumbers = new int[capacity];
+        cardNumbers = new int[capacity];
+        numbers = new StringDictionary();
+        webshopIds = new String[CustomerIndex.WEBSHOP_CAPACITY];
+    }
+
+    private PaymentTable(int[] customerKeys, byte[] types, long[] amounts, int[] epochDays,
+                         int[] bankAccountNumbers, int[] cardNumbers, StringDictionary numbers, String[] webshopIds) {
+        this.customerKeys = customerKeys;
+        this.types = types;
+        this.amounts = amounts;
+        this.epochDays = epochDays;
+        this.bankAccountNumbers = bankAccountNumbers;
+        this.cardNumbers = cardNumbers;
+        this.size = customerKeys.length;
+        this.numbers = numbers;
+        this.webshopIds = webshopIds;
+    }
+
+    /**
+     * Creates a table of whole columns without adding the rows one by one, e.g. read back from the cache.
+     * The arrays are taken over by the table, they have to be of the same length.
+     *
+     * @param customerKeys CustomerIndex keys of the customers
+     * @param types CARD or TRANSFER
+     * @param amounts amounts of the payments
+     * @param epochDays days of the payments as days since 1970.01.01
+     * @param bankAccountNumbers ids of the bank account numbers in the dictionary
+     * @param cardNumbers ids of the card numbers in the dictionary
+     * @param numbers dictionary of the bank account and card numbers
+     * @param webshopIds webshop ids indexed by webshop number, CustomerIndex.WEBSHOP_CAPACITY long
+     *
+     * @return table of the columns.
+     */
+    static PaymentTable ofColumns(int[] customerKeys, byte[] types, long[] amounts, int[] epochDays,
+                                  int[] bankAccountNumbers, int[] cardNumbers, StringDictionary numbers,
+                                  String[] webshopIds) {
+        return new PaymentTable(customerKeys, types, amounts, epochDays, bankAccountNumbers, cardNumbers, numbers,
+                webshopIds);
+    }
+
+    /**
+     * Appends a Payment.
+     *
+     * @param customerKey CustomerIndex key of the customer
+     * @param webshopId id of the webshop as read from the csv
+     * @param card true for card payments, false for transfers
+     * @param amountPayed amount of the payment
+     * @param epochDay day of the payment as days since 1970.01.01
+     * @param bankAccountNumber id of the bank account number returned by encodeNumber
+     * @param cardNumber id of the card number returned by encodeNumber
+     */
+    public void add(int customerKey, String webshopId, boolean card, long amountPayed, int epochDay,
+                    int bankAccountNumber, int cardNumber) {
+        if (size == customerKeys.length) {
+            // a table of columns may be empty
+            grow(Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        int webshopNumber = customerKey / 100;
+        if (webshopIds[webshopNumber] == null) {
+            webshopIds[webshopNumber] = webshopId;
+        }
+        customerKeys[size] = customerKey;
+        types[size] = card ? CARD : TRANSFER;
+        amounts[size] = amountPayed;
+        epochDays[size] = epochDay;
+        bankAccountNumbers[size] = bankAccountNumber;
+        cardNumbers[size] = cardNumber;
+        size++;
+    }
+
+    /**
+     * @return id of a bank account or card number for add.
+     */
+    public int encodeNumber(String number) {
+        return numbers.idOf(number);
+    }
+
+    /**
+     * Encodes a bank account or card number field of a csv row without decoding it.
+     *
+     * @return id of the number for add.
+     */
+    public int encodeNumber(CsvRow row, int field) {
+        return numbers.idOf(row, field);
+    }
+
+    /**
+     * Appends the rows of another table, its numbers are encoded again with the dictionary of this table.
+     *
+     * @param other table to append
+     */
+    public void addAll(PaymentTable other) {
+        if (size + other.size > customerKeys.length) {
+            grow(Math.max(size + other.size, customerKeys.length * 2));
+        }
+        // ids of the other table's numbers in this table, -1 until first met
+        int[] numberIds = new int[other.numbers.size()];
+        Arrays.fill(numberIds, -1);
+        for (int row = 0; row < other.size; row++) {
+            customerKeys[size + row] = other.customerKeys[row];
+            bankAccountNumbers[size + row] = encodeNumber(other, numberIds, other.bankAccountNumbers[row]);
+            cardNumbers[size + row] = encodeNumber(other, numberIds, other.cardNumbers[row]);
+        }
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.amounts, 0, amounts, size, other.size);
+        System.arraycopy(other.epochDays, 0, epochDays, size, other.size);
+        for (int webshopNumber = 0; webshopNumber < CustomerIndex.WEBSHOP_CAPACITY; webshopNumber++) {
+            if (webshopIds[webshopNumber] == null) {
+                webshopIds[webshopNumber] = other.webshopIds[webshopNumber];
+            }
+        }
+        size += other.size;
+    }
+
+    /**
+     * Removes rows, keeping the order of the others.
+     *
+     * @param rows indexes of the rows to remove
+     */
+    public void removeRows(BitSet rows) {
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (rows.get(row)) {
+                continue;
+            }
+            customerKeys[kept] = customerKeys[row];
+            types[kept] = types[row];
+            amounts[kept] = amounts[row];
+            epochDays[kept] = epochDays[row];
+            bankAccountNumbers[kept] = bankAccountNumbers[row];
+            cardNumbers[kept] = cardNumbers[row];
+            kept++;
+        }
+        size = kept;
+    }
+
+    /**
+     * @return number of Payments.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCustomerKey(int row) {
+        return customerKeys[row];
+    }
+
+    public int getWebshopNumber(int row) {
+        return customerKeys[row] / 100;
+    }
+
+    public String getWebshopId(int row) {
+        return webshopIds[customerKeys[row] / 100];
+    }
+
+    public boolean isCard(int row) {
+        return types[row] == CARD;
+    }
+
+    /**
+     * @return card or transfer.
+     */
+    public String getType(int row) {
+        return types[row] == CARD ? PaymentValidator.CARD : PaymentValidator.TRANSFER;
+    }
+
+    public long getAmountPayed(int row) {
+        return amounts[row];
+    }
+
+    public int getEpochDayOfPayment(int row) {
+        return epochDays[row];
+    }
+
+    public String getBankAccountNumber(int row) {
+        return numbers.get(bankAccountNumbers[row]);
+    }
+
+    public String getCreditOrDebitCardNumber(int row) {
+        return numbers.get(cardNumbers[row]);
+    }
+
+    public int getBankAccountNumberId(int row) {
+        return bankAccountNumbers[row];
+    }
+
+    public int getCardNumberId(int row) {
+        return cardNumbers[row];
+    }
+
+    /**
+     * @return number of distinct bank account and card numbers.
+     */
+    public int getNumberCount() {
+        return numbers.size();
+    }
+
+    /**
+     * @return the bank account or card number of an id returned by encodeNumber.
+     */
+    public String getNumber(int id) {
+        return numbers.get(id);
+    }
+
+    private int encodeNumber(PaymentTable other, int[] numberIds, int otherId) {
+        if (numberIds[otherId] < 0) {
+            numberIds[otherId] = numbers.idOf(other.numbers, otherId);
+        }
+        return numberIds[otherId];
+    }
+
+    private void grow(int capacity) {
+        customerKeys = Arrays.copyOf(customerKeys, capacity);
+        types = Arrays.copyOf(types, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        bankAccountNumbers = Arrays.copyOf(bankAccountNumbers, capacity);
+        cardNumbers = Arrays.copyOf(cardNumbers, capacity);
+    }
+}
@@ -0,0 +1,271 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.CardNetwork;
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CardNumberBatch;
+import com.codecool.homework.util.CsvRow;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Validates the rows of the payments file on the raw field slices.
+ * Validating a row does not allocate, the values parsed by the rules are kept for appendPayment,
+ * so one instance must only be used by one thread at a time.
+ */
+public class PaymentValidator {
+    public static final String CARD = "card";
+    public static final String TRANSFER = "transfer";
+
+    private static final int FIELD_COUNT = 7;
+    private static final int WEBSHOP_ID = 0;
+    private static final int CUSTOMER_ID = 1;
+    private static final int TYPE = 2;
+    private static final int AMOUNT = 3;
+    private static final int BANK_ACCOUNT_NUMBER = 4;
+    private static final int CARD_NUMBER = 5;
+    private static final int DATE = 6;
+    private static final byte[] CARD_BYTES = CARD.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFER_BYTES = TRANSFER.getBytes(StandardCharsets.US_ASCII);
+
+    private final CustomerIndex customers;
+    private final DateValidatorForNotIsoFormat dateValidator;
+    private final RejectCounters counters;
+    private final ValidationPipeline pipeline;
+
+    // values of the row being validated
+    private boolean cardPayment;
+    private long amountPayed;
+    private int epochDayOfPayment;
+    private int customerKey;
+    private Customer customer;
+
+    /**
+     * @param customers index of validated Customers
+     * @param dateValidator validator of the payment dates
+     * @param counters counters of the validation results
+     */
+    public PaymentValidator(CustomerIndex customers, DateValidatorForNotIsoFormat dateValidator,
+                            RejectCounters counters) {
+        this.customers = customers;
+        this.dateValidator = dateValidator;
+        this.counters = counters;
+        this.pipeline = new ValidationPipeline(counters,
+                this::checkFieldCount,
+                this::checkWebshopId,
+                this::checkCustomerId,
+                this::checkType,
+                this::checkAmount,
+                this::checkAccountAndCard,
+                this::checkBankAccountNumber,
+                this::checkCardNumber,
+                this::checkCardNetwork,
+                this::checkDate,
+                this::checkCustomer);
+    }
+
+    /**
+     * Validates a row by every rule but the Luhn check of the card number. A card payment passing them is not
+     * counted as valid yet, it still has to pass the Luhn check of its batch, see queueCardNumber.
+     *
+     * @return RejectReason.VALID or the reason of rejecting the row.
+     */
+    public RejectReason validate(CsvRow row) {
+        RejectReason reason = pipeline.check(row);
+        if (reason == RejectReason.VALID && !cardPayment) {
+            counters.increment(RejectReason.VALID);
+        }
+        return reason;
+    }
+
+    /**
+     * Appends the Payment of the row which passed the validation last to a table.
+     *
+     * @param row the row which passed the validation
+     * @param payments table of the valid Payments
+     */
+    public void appendPayment(CsvRow row, PaymentTable payments) {
+        payments.add(customerKey, customer.getWebshopId(), cardPayment, amountPayed, epochDayOfPayment,
+                payments.encodeNumber(row, BANK_ACCOUNT_NUMBER), payments.encodeNumber(row, CARD_NUMBER));
+    }
+
+    /**
+     * Queues the card number of the row which passed the validation last for the batched Luhn check.
+     * The caller counts the result of the check, see PaymentChunkValidator.
+     *
+     * @param row the row which passed the validation
+     * @param cardNumbers batch to add the card number to
+     * @param tag reported by the batch if the card number fails the check
+     *
+     * @return true if the card number was queued, false for transfers.
+     */
+    public boolean queueCardNumber(CsvRow row, CardNumberBatch cardNumbers, long tag) {
+        if (!cardPayment) {
+            return false;
+        }
+        cardNumbers.add(row, CARD_NUMBER, tag);
+        return true;
+    }
+
+    // trailing empty fields are not counted, like with the String.split(";") the rows were read with before
+    private RejectReason checkFieldCount(CsvRow row) {
+        return row.getSplitFieldCount() == FIELD_COUNT ? RejectReason.VALID : RejectReason.PAYMENT_FIELD_COUNT;
+    }
+
+    private RejectReason checkWebshopId(CsvRow row) {
+        if (row.getFieldLength(WEBSHOP_ID) != 4) {
+            return RejectReason.PAYMENT_WEBSHOP_ID_LENGTH;
+        }
+        if (!FieldFormat.isWebshopId(row, WEBSHOP_ID)) {
+            return RejectReason.PAYMENT_WEBSHOP_ID_FORMAT;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkCustomerId(CsvRow row) {
+        if (row.getFieldLength(CUSTOMER_ID) != 3) {
+            return RejectReason.PAYMENT_CUSTOMER_ID_LENGTH;
+        }
+        if (!FieldFormat.isCustomerId(row, CUSTOMER_ID)) {
+            return RejectReason.PAYMENT_CUSTOMER_ID_FORMAT;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkType(CsvRow row) {
+        if (row.fieldEquals(TYPE, CARD_BYTES)) {
+            cardPayment = true;
+        } else if (row.fieldEquals(TYPE, TRANSFER_BYTES)) {
+            cardPayment = false;
+        } else {
+            return RejectReason.PAYMENT_TYPE;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkAmount(CsvRow row) {
+        if (!parseAmount(row)) {
+            return RejectReason.PAYMENT_AMOUNT_FORMAT;
+        }
+        if (amountPayed == 0) {
+            return RejectReason.PAYMENT_AMOUNT_ZERO;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkAccountAndCard(CsvRow row) {
+        boolean hasBankAccountNumber = !row.isFieldEmpty(BANK_ACCOUNT_NUMBER);
+        boolean hasCardNumber = !row.isFieldEmpty(CARD_NUMBER);
+        if (hasBankAccountNumber && hasCardNumber) {
+            return RejectReason.PAYMENT_ACCOUNT_AND_CARD;
+        }
+        if (!hasBankAccountNumber && !hasCardNumber) {
+            return RejectReason.PAYMENT_NO_ACCOUNT_OR_CARD;
+        }
+        if (cardPayment && hasBankAccountNumber) {
+            return RejectReason.PAYMENT_CARD_WITH_ACCOUNT;
+        }
+        if (!cardPayment && hasCardNumber) {
+            return RejectReason.PAYMENT_TRANSFER_WITH_CARD;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkBankAccountNumber(CsvRow row) {
+        int length = row.getFieldLength(BANK_ACCOUNT_NUMBER);
+        if (!cardPayment && (length < 8 || length > 24)) {
+            return RejectReason.PAYMENT_ACCOUNT_LENGTH;
+        }
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkCardNumber(CsvRow row) {
+        if (!cardPayment) {
+            return RejectReason.VALID;
+        }
+        int length = row.getFieldLength(CARD_NUMBER);
+        // American Express edge case
+        if (length == 15 && (row.byteAt(CARD_NUMBER, 0) != '3'
+                || (row.byteAt(CARD_NUMBER, 1) != '7' && row.byteAt(CARD_NUMBER, 1) != '4'))) {
+            return RejectReason.PAYMENT_AMEX_PREFIX;
+        }
+        if (length < 15 || length > 19) {
+            return RejectReason.PAYMENT_CARD_LENGTH;
+        }
+        // the Luhn check runs on batches of the valid rows' card numbers, see queueCardNumber
+        return RejectReason.VALID;
+    }
+
+    private RejectReason checkCardNetwork(CsvRow row) {
+        if (!cardPayment) {
+            return RejectReason.VALID;
+        }
+        int firstFourDigits = 0;
+        for (int i = 0; i < 4; i++) {
+            byte character = row.byteAt(CARD_NUMBER, i);
+            if (!FieldFormat.isDigit(character)) {
+                // not a number at all, rejected by the Luhn check
+                return RejectReason.VALID;
+            }
+            firstFourDigits = firstFourDigits * 10 + (character - '0');
+        }
+        return CardNetwork.of(firstFourDigits).issuesLength(row.getFieldLength(CARD_NUMBER))
+                ? RejectReason.VALID : RejectReason.PAYMENT_CARD_NETWORK_LENGTH;
+    }
+
+    private RejectReason checkDate(CsvRow row) {
+        epochDayOfPayment = dateValidator.toEpochDay(row, DATE);
+        return epochDayOfPayment != DateValidatorForNotIsoFormat.INVALID_DATE
+                ? RejectReason.VALID : RejectReason.PAYMENT_DATE;
+    }
+
+    private RejectReason checkCustomer(CsvRow row) {
+        customerKey = CustomerIndex.keyOf(row, WEBSHOP_ID, CUSTOMER_ID);
+        customer = customers.get(customerKey);
+        return customer != null ? RejectReason.VALID : RejectReason.PAYMENT_CUSTOMER_NOT_FOUND;
+    }
+
+    /**
+     * Parses the amount the same way as Long.parseLong, without creating a String or throwing on invalid input.
+     *
+     * @return true and amountPayed set if the field is a valid long.
+     */
+    private boolean parseAmount(CsvRow row) {
+        int length = row.getFieldLength(AMOUNT);
+        if (length == 0) {
+            return false;
+        }
+        int index = 0;
+        boolean negative = false;
+        byte first = row.byteAt(AMOUNT, 0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            index = 1;
+            if (length == 1) {
+                return false;
+            }
+        }
+        // accumulating negatively, as the negative range is larger by one
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (; index < length; index++) {
+            byte character = row.byteAt(AMOUNT, index);
+            if (!FieldFormat.isDigit(character)) {
+                return false;
+            }
+            int digit = character - '0';
+            if (result < multiplicationLimit) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        amountPayed = negative ? result : -result;
+        return true;
+    }
+}
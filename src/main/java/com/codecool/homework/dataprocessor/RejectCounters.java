@@ -0,0 +1,81 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.RejectReason;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters of the validation results per reason, including RejectReason.VALID for the valid rows.
+ */
+public class RejectCounters {
+    private final LongAdder[] counters = new LongAdder[RejectReason.values().length];
+
+    public RejectCounters() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public void increment(RejectReason reason) {
+        counters[reason.ordinal()].increment();
+    }
+
+    /**
+     * Adds a count of earlier validation results, e.g. ones restored from the cache.
+     *
+     * @param reason reason of the results
+     * @param count number of rows with the reason
+     */
+    public void add(RejectReason reason, long count) {
+        counters[reason.ordinal()].add(count);
+    }
+
+    public long getCount(RejectReason reason) {
+        return counters[reason.ordinal()].sum();
+    }
+
+    /**
+     * @return number of rejected rows, valid rows not included.
+     */
+    public long getRejectedCount() {
+        long rejected = 0;
+        for (RejectReason reason : RejectReason.values()) {
+            if (reason != RejectReason.VALID) {
+                rejected += getCount(reason);
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * @return number of validated rows, valid and rejected.
+     */
+    public long getRowCount() {
+        return getCount(RejectReason.VALID) + getRejectedCount();
+    }
+
+    /**
+     * @return counts of the reject reasons which occurred at least once, RejectReason.VALID not included.
+     */
+    public Map<RejectReason, Long> getRejectCounts() {
+        Map<RejectReason, Long> counts = getNonZeroCounts();
+        counts.remove(RejectReason.VALID);
+        return counts;
+    }
+
+    /**
+     * @return counts of the reasons which occurred at least once, in the order of the reasons.
+     */
+    public Map<RejectReason, Long> getNonZeroCounts() {
+        Map<RejectReason, Long> counts = new EnumMap<>(RejectReason.class);
+        for (RejectReason reason : RejectReason.values()) {
+            long count = getCount(reason);
+            if (count > 0) {
+                counts.put(reason, count);
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,251 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.CustomerPaymentSum;
+import com.codecool.homework.util.AmountHistogram;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import com.codecool.homework.util.TopKSelector;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Builds the reports from the validated Customers and Payments.
+ */
+@Component
+public class ReportBuilder {
+    // highest sum first, ties ordered by webshop id and customer id
+    static final Comparator<CustomerPaymentSum> BY_SUM_DESCENDING = Comparator
+            .comparing(CustomerPaymentSum::sum, Comparator.reverseOrder())
+            .thenComparingInt(CustomerPaymentSum::key);
+
+    /**
+     * Sums up the payments per customer and per webshop and payment type in a single pass.
+     *
+     * @param payments table of validated Payments
+     *
+     * @return aggregated sums of payments.
+     */
+    public PaymentAggregator aggregatePayments(PaymentTable payments) {
+        PaymentAggregator aggregator = new PaymentAggregator();
+        aggregatePayments(aggregator, payments);
+        return aggregator;
+    }
+
+    /**
+     * Adds the payments to existing sums, e.g. the sums restored from a PaymentCheckpoint.
+     *
+     * @param aggregator sums to add the payments to
+     * @param payments table of validated Payments
+     */
+    public void aggregatePayments(PaymentAggregator aggregator, PaymentTable payments) {
+        for (int row = 0; row < payments.size(); row++) {
+            aggregator.add(payments.getCustomerKey(row), payments.getWebshopId(row), payments.isCard(row),
+                    payments.getAmountPayed(row), payments.getEpochDayOfPayment(row));
+        }
+    }
+
+    /**
+     * Collects the typed sum of payment of each Customer.
+     *
+     * @param customers validated Customers
+     * @param aggregates sums of validated Payments
+     *
+     * @return list of CustomerPaymentSum.
+     */
+    public List<CustomerPaymentSum> collectCustomerPaymentSums(Collection<Customer> customers,
+                                                               PaymentAggregator aggregates) {
+        List<CustomerPaymentSum> customerPaymentSums = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            int key = CustomerIndex.keyOf(customer.getWebshopId(), customer.getId());
+            customerPaymentSums.add(new CustomerPaymentSum(key, customer, aggregates.getCustomerSum(key)));
+        }
+        return customerPaymentSums;
+    }
+
+    /**
+     * Creates a report for each Customer's sum of payment.
+     *
+     * @param customerPaymentSums sums of payment of the validated Customers
+     *
+     * @return set of String.
+     *
+     * @author Bálint Mészáros
+     */
+    public Set<String> createReportOfCustomersBySumPayment(List<CustomerPaymentSum> customerPaymentSums) {
+        Set<String> report = new HashSet<>();
+        for (CustomerPaymentSum customerPaymentSum : customerPaymentSums) {
+            report.add(formatCustomerPaymentSum(customerPaymentSum));
+        }
+        return report;
+    }
+
+    /**
+     * Creates a report for top K Customers by sum of payment.
+     * Ties are ordered by webshop id and customer id.
+     *
+     * @param customerPaymentSums sums of payment of the validated Customers
+     * @param k number of Customers in the report
+     *
+     * @return list of String.
+     *
+     * @author Bálint Mészáros
+     */
+    public List<String> createReportOfTopCustomersByPaymentSum(List<CustomerPaymentSum> customerPaymentSums, int k) {
+        TopKSelector<CustomerPaymentSum> selector = new TopKSelector<>(k, BY_SUM_DESCENDING);
+        customerPaymentSums.forEach(selector::offer);
+        List<CustomerPaymentSum> topCustomers = selector.getResult();
+        List<String> report = new ArrayList<>(topCustomers.size());
+        for (CustomerPaymentSum customerPaymentSum : topCustomers) {
+            report.add(formatCustomerPaymentSum(customerPaymentSum));
+        }
+        return report;
+    }
+
+    /**
+     * Creates a report for top K Customers of each webshop by sum of payment, webshops in ascending order.
+     * Ties are ordered by customer id.
+     *
+     * @param customerPaymentSums sums of payment of the validated Customers
+     * @param k number of Customers per webshop in the report
+     *
+     * @return list of String.
+     */
+    public List<String> createReportOfTopCustomersPerWebshopByPaymentSum(List<CustomerPaymentSum> customerPaymentSums,
+                                                                         int k) {
+        // the webshop number is the first two digits of the key
+        Map<Integer, TopKSelector<CustomerPaymentSum>> selectors = new TreeMap<>();
+        for (CustomerPaymentSum customerPaymentSum : customerPaymentSums) {
+            selectors.computeIfAbsent(customerPaymentSum.key() / 100, webshopNumber ->
+                    new TopKSelector<>(k, BY_SUM_DESCENDING)).offer(customerPaymentSum);
+        }
+        List<String> report = new ArrayList<>();
+        for (TopKSelector<CustomerPaymentSum> selector : selectors.values()) {
+            for (CustomerPaymentSum customerPaymentSum : selector.getResult()) {
+                report.add(customerPaymentSum.customer().getWebshopId() + ";"
+                        + formatCustomerPaymentSum(customerPaymentSum));
+            }
+        }
+        return report;
+    }
+
+    private static String formatCustomerPaymentSum(CustomerPaymentSum customerPaymentSum) {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(customerPaymentSum.customer().getName()).append(";")
+                .append(customerPaymentSum.customer().getAddress()).append(";")
+                .append(customerPaymentSum.sum());
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Creates a report for each webshop's sum of payment by card and transfer.
+     *
+     * @param aggregates sums of validated Payments
+     *
+     * @return set of String.
+     *
+     * @author Bálint Mészáros
+     */
+    public Set<String> createReportOfWebshopsByPaymentSums(PaymentAggregator aggregates) {
+        Set<String> report = new HashSet<>();
+        for (int webshopNumber : aggregates.getWebshopNumbers()) {
+            StringBuilder stringBuilder = new StringBuilder();
+            BigInteger cardPaymentsSum = aggregates.getWebshopCardSum(webshopNumber);
+            BigInteger transferPaymentsSum = aggregates.getWebshopTransferSum(webshopNumber);
+            stringBuilder.append(aggregates.getWebshopId(webshopNumber)).append(";")
+                    .append(cardPaymentsSum).append(";")
+                    .append(transferPaymentsSum).append(";");
+            report.add(stringBuilder.toString());
+        }
+        return report;
+    }
+
+    /**
+     * Creates a report of each webshop's monthly and daily sums of payment by card and transfer,
+     * webshops and dates in ascending order, every month followed by its days.
+     *
+     * @param aggregates sums of validated Payments
+     *
+     * @return list of String.
+     */
+    public List<String> createReportOfWebshopsByPaymentDate(PaymentAggregator aggregates) {
+        DailyPaymentSums dailySums = aggregates.getDailySums();
+        List<Integer> slots = new ArrayList<>(dailySums.size());
+        for (int slot = 0; slot < dailySums.size(); slot++) {
+            slots.add(slot);
+        }
+        slots.sort(Comparator.comparingInt(dailySums::getWebshopNumber).thenComparingInt(dailySums::getEpochDay));
+        List<String> report = new ArrayList<>();
+        // the days of the month being collected, written after the line of their month
+        List<String> monthDays = new ArrayList<>();
+        int webshopNumber = -1;
+        int firstDayOfMonth = 0;
+        BigInteger monthCardSum = BigInteger.ZERO;
+        BigInteger monthTransferSum = BigInteger.ZERO;
+        for (int slot : slots) {
+            int epochDay = dailySums.getEpochDay(slot);
+            int slotFirstDayOfMonth = DateValidatorForNotIsoFormat.firstDayOfMonth(epochDay);
+            if (dailySums.getWebshopNumber(slot) != webshopNumber || slotFirstDayOfMonth != firstDayOfMonth) {
+                addMonth(report, aggregates, webshopNumber, firstDayOfMonth, monthCardSum, monthTransferSum,
+                        monthDays);
+                webshopNumber = dailySums.getWebshopNumber(slot);
+                firstDayOfMonth = slotFirstDayOfMonth;
+                monthCardSum = BigInteger.ZERO;
+                monthTransferSum = BigInteger.ZERO;
+            }
+            BigInteger cardSum = dailySums.getCardSum(slot);
+            BigInteger transferSum = dailySums.getTransferSum(slot);
+            monthCardSum = monthCardSum.add(cardSum);
+            monthTransferSum = monthTransferSum.add(transferSum);
+            monthDays.add(aggregates.getWebshopId(webshopNumber) + ";day;"
+                    + DateValidatorForNotIsoFormat.format(epochDay) + ";" + cardSum + ";" + transferSum);
+        }
+        addMonth(report, aggregates, webshopNumber, firstDayOfMonth, monthCardSum, monthTransferSum, monthDays);
+        return report;
+    }
+
+    /**
+     * Creates a report of the distribution of the payment amounts of each webshop by payment type,
+     * webshops in ascending order, card before transfer.
+     * Each line is webshop id;card or transfer;count;min;p50;p90;p99;max, the count, minimum and maximum are exact,
+     * the percentiles are estimated by the amount histograms.
+     *
+     * @param aggregates sums of validated Payments
+     *
+     * @return list of String.
+     */
+    public List<String> createReportOfWebshopAmountDistributions(PaymentAggregator aggregates) {
+        List<String> report = new ArrayList<>();
+        for (int webshopNumber : aggregates.getWebshopNumbers()) {
+            String webshopId = aggregates.getWebshopId(webshopNumber);
+            addAmountDistribution(report, webshopId, PaymentValidator.CARD,
+                    aggregates.getWebshopCardAmounts(webshopNumber));
+            addAmountDistribution(report, webshopId, PaymentValidator.TRANSFER,
+                    aggregates.getWebshopTransferAmounts(webshopNumber));
+        }
+        return report;
+    }
+
+    private static void addAmountDistribution(List<String> report, String webshopId, String type,
+                                              AmountHistogram amounts) {
+        if (amounts == null) {
+            return;
+        }
+        report.add(webshopId + ";" + type + ";" + amounts.getCount() + ";" + amounts.getMin() + ";"
+                + amounts.getValueAtQuantile(0.5) + ";" + amounts.getValueAtQuantile(0.9) + ";"
+                + amounts.getValueAtQuantile(0.99) + ";" + amounts.getMax());
+    }
+
+    private static void addMonth(List<String> report, PaymentAggregator aggregates, int webshopNumber,
+                                 int firstDayOfMonth, BigInteger cardSum, BigInteger transferSum,
+                                 List<String> monthDays) {
+        if (monthDays.isEmpty()) {
+            return;
+        }
+        report.add(aggregates.getWebshopId(webshopNumber) + ";month;"
+                + DateValidatorForNotIsoFormat.formatMonth(firstDayOfMonth) + ";" + cardSum + ";" + transferSum);
+        report.addAll(monthDays);
+        monthDays.clear();
+    }
+}
@@ -0,0 +1,332 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.FileDigest;
+import com.codecool.homework.util.StringDictionary;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * On-disk cache of the validated Customers and Payments of a pair of input files, so the reports can be
+ * created again without parsing and validating the csv files.
+ * The data is stored in a binary columnar format: every distinct string once in a dictionary, the customers
+ * and payments as columns of dictionary indexes, customer keys, long amounts and epoch-day dates,
+ * the same columns as a PaymentTable. Cache files are found by the
+ * size and modification time of the inputs and only used if the content hashes of both inputs still match.
+ * On reload every payment column is bulk copied into the array of a PaymentTable and the numbers keep their
+ * dictionary ids, so no row is added or encoded one by one.
+ */
+@Component
+@AllArgsConstructor
+public class ValidatedDataCache {
+    private static final int MAGIC = 0x48574443;
+    // to be increased if the format or the validation changes, so older cache files are not used
+    private static final int VERSION = 4;
+    private static final String CACHE_FILE_EXTENSION = ".cache";
+
+    private HomeworkProperties properties;
+
+    /**
+     * Identifies the inputs of a run by their size, modification time and content hash.
+     */
+    public record Key(long customerFileSize, long customerFileModified, byte[] customerFileHash,
+                      long paymentsFileSize, long paymentsFileModified, byte[] paymentsFileHash) {
+
+        /**
+         * @return true if the other key belongs to inputs with the same content.
+         */
+        boolean matches(Key other) {
+            return customerFileSize == other.customerFileSize && paymentsFileSize == other.paymentsFileSize
+                    && Arrays.equals(customerFileHash, other.customerFileHash)
+                    && Arrays.equals(paymentsFileHash, other.paymentsFileHash);
+        }
+    }
+
+    /**
+     * Validated data loaded from the cache.
+     *
+     * @param customers index of the valid Customers
+     * @param payments valid Payments in file order
+     * @param customerCounters validation results of the customer file
+     * @param paymentCounters validation results of the payments file
+     */
+    public record CachedData(CustomerIndex customers, PaymentTable payments, RejectCounters customerCounters,
+                             RejectCounters paymentCounters) {
+    }
+
+    /**
+     * Hashes the input files, the key is used for loading and storing.
+     */
+    public Key keyOf(File customerFile, File paymentsFile) throws IOException {
+        return new Key(customerFile.length(), customerFile.lastModified(), FileDigest.hash(customerFile),
+                paymentsFile.length(), paymentsFile.lastModified(), FileDigest.hash(paymentsFile));
+    }
+
+    /**
+     * @return the cache file of the inputs, it may not exist.
+     */
+    public Path cacheFileOf(File customerFile, File paymentsFile) {
+        // the file name only depends on where the inputs are and when they were modified, the content is checked
+        MessageDigest digest = FileDigest.newDigest();
+        digest.update(String.format("%s;%d;%d;%s;%d;%d", customerFile.getAbsolutePath(), customerFile.length(),
+                customerFile.lastModified(), paymentsFile.getAbsolutePath(), paymentsFile.length(),
+                paymentsFile.lastModified()).getBytes(StandardCharsets.UTF_8));
+        return Path.of(properties.getCache().getDirectory()).resolve(HexFormat.of().formatHex(digest.digest(), 0, 16)
+                + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * Loads the validated data of the inputs if the cache has it.
+     *
+     * @param cacheFile cache file of the inputs
+     * @param key key of the inputs
+     *
+     * @return the cached data or null if there is no valid cache file for the inputs.
+     */
+    public CachedData load(Path cacheFile, Key key) throws IOException {
+        if (!Files.exists(cacheFile)) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readKey(buffer).matches(key)) {
+            return null;
+        }
+        RejectCounters customerCounters = readCounters(buffer);
+        RejectCounters paymentCounters = readCounters(buffer);
+        String[] strings = readStrings(buffer);
+        // customer columns
+        int customerCount = buffer.getInt();
+        int[] keys = readIntColumn(buffer, customerCount);
+        int[] webshopIds = readIntColumn(buffer, customerCount);
+        int[] ids = readIntColumn(buffer, customerCount);
+        int[] names = readIntColumn(buffer, customerCount);
+        int[] addresses = readIntColumn(buffer, customerCount);
+        CustomerIndex customers = new CustomerIndex();
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(keys[i], new Customer(strings[webshopIds[i]], strings[ids[i]], strings[names[i]],
+                    strings[addresses[i]]));
+        }
+        // payment columns, the type column holds the PaymentTable.CARD and PaymentTable.TRANSFER values
+        int paymentCount = buffer.getInt();
+        int[] customerKeys = readIntColumn(buffer, paymentCount);
+        byte[] types = new byte[paymentCount];
+        buffer.get(types);
+        long[] amounts = new long[paymentCount];
+        buffer.asLongBuffer().get(amounts);
+        buffer.position(buffer.position() + paymentCount * Long.BYTES);
+        int[] epochDays = readIntColumn(buffer, paymentCount);
+        int[] bankAccountNumbers = readIntColumn(buffer, paymentCount);
+        int[] cardNumbers = readIntColumn(buffer, paymentCount);
+        // the bank account and card numbers in the order of their ids in the table
+        StringDictionary numbers = readDictionary(buffer);
+        String[] paymentWebshopIds = new String[CustomerIndex.WEBSHOP_CAPACITY];
+        for (int i = 0; i < paymentCount; i++) {
+            Customer customer = customers.get(customerKeys[i]);
+            if (customer == null || !isNumberId(bankAccountNumbers[i], numbers)
+                    || !isNumberId(cardNumbers[i], numbers)) {
+                throw new IOException("Cache file references a missing customer or number.");
+            }
+            paymentWebshopIds[customerKeys[i] / 100] = customer.getWebshopId();
+        }
+        PaymentTable payments = PaymentTable.ofColumns(customerKeys, types, amounts, epochDays, bankAccountNumbers,
+                cardNumbers, numbers, paymentWebshopIds);
+        return new CachedData(customers, payments, customerCounters, paymentCounters);
+    }
+
+    /**
+     * Stores the validated data of the inputs, replacing the cache file only once it is written completely.
+     *
+     * @param cacheFile cache file of the inputs
+     * @param key key of the inputs
+     * @param customers index of the valid Customers
+     * @param payments valid Payments
+     * @param customerCounters validation results of the customer file
+     * @param paymentCounters validation results of the payments file
+     */
+    public void store(Path cacheFile, Key key, CustomerIndex customers, PaymentTable payments,
+                      RejectCounters customerCounters, RejectCounters paymentCounters) throws IOException {
+        // dictionary of the distinct strings, referenced by index from the columns
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        List<Customer> customerList = customers.getCustomers();
+        for (Customer customer : customerList) {
+            for (String value : List.of(customer.getWebshopId(), customer.getId(), customer.getName(),
+                    customer.getAddress())) {
+                stringIndexOf(value, stringIndexes, strings);
+            }
+        }
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        Path temporaryFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryFile), 64 * 1024))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeKey(output, key);
+            writeCounters(output, customerCounters);
+            writeCounters(output, paymentCounters);
+            writeStrings(output, strings);
+            output.writeInt(customerList.size());
+            for (Customer customer : customerList) {
+                output.writeInt(CustomerIndex.keyOf(customer.getWebshopId(), customer.getId()));
+            }
+            for (Customer customer : customerList) {
+                output.writeInt(stringIndexes.get(customer.getWebshopId()));
+            }
+            for (Customer customer : customerList) {
+                output.writeInt(stringIndexes.get(customer.getId()));
+            }
+            for (Customer customer : customerList) {
+                output.writeInt(stringIndexes.get(customer.getName()));
+            }
+            for (Customer customer : customerList) {
+                output.writeInt(stringIndexes.get(customer.getAddress()));
+            }
+            output.writeInt(payments.size());
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeInt(payments.getCustomerKey(row));
+            }
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeByte(payments.isCard(row) ? PaymentTable.CARD : PaymentTable.TRANSFER);
+            }
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeLong(payments.getAmountPayed(row));
+            }
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeInt(payments.getEpochDayOfPayment(row));
+            }
+            // the numbers keep the ids of the table's dictionary
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeInt(payments.getBankAccountNumberId(row));
+            }
+            for (int row = 0; row < payments.size(); row++) {
+                output.writeInt(payments.getCardNumberId(row));
+            }
+            List<String> numbers = new ArrayList<>(payments.getNumberCount());
+            for (int id = 0; id < payments.getNumberCount(); id++) {
+                numbers.add(payments.getNumber(id));
+            }
+            writeStrings(output, numbers);
+        }
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void stringIndexOf(String value, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (stringIndexes.putIfAbsent(value, strings.size()) == null) {
+            strings.add(value);
+        }
+    }
+
+    private static void writeKey(DataOutputStream output, Key key) throws IOException {
+        output.writeLong(key.customerFileSize());
+        output.writeLong(key.customerFileModified());
+        output.writeInt(key.customerFileHash().length);
+        output.write(key.customerFileHash());
+        output.writeLong(key.paymentsFileSize());
+        output.writeLong(key.paymentsFileModified());
+        output.writeInt(key.paymentsFileHash().length);
+        output.write(key.paymentsFileHash());
+    }
+
+    private static Key readKey(ByteBuffer buffer) {
+        long customerFileSize = buffer.getLong();
+        long customerFileModified = buffer.getLong();
+        byte[] customerFileHash = new byte[buffer.getInt()];
+        buffer.get(customerFileHash);
+        long paymentsFileSize = buffer.getLong();
+        long paymentsFileModified = buffer.getLong();
+        byte[] paymentsFileHash = new byte[buffer.getInt()];
+        buffer.get(paymentsFileHash);
+        return new Key(customerFileSize, customerFileModified, customerFileHash, paymentsFileSize,
+                paymentsFileModified, paymentsFileHash);
+    }
+
+    private static void writeCounters(DataOutputStream output, RejectCounters counters) throws IOException {
+        output.writeInt(RejectReason.values().length);
+        for (RejectReason reason : RejectReason.values()) {
+            output.writeLong(counters.getCount(reason));
+        }
+    }
+
+    private static RejectCounters readCounters(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != RejectReason.values().length) {
+            throw new IOException("Cache file was written with different reject reasons.");
+        }
+        RejectCounters counters = new RejectCounters();
+        for (RejectReason reason : RejectReason.values()) {
+            counters.add(reason, buffer.getLong());
+        }
+        return counters;
+    }
+
+    private static void writeStrings(DataOutputStream output, List<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static boolean isNumberId(int id, StringDictionary numbers) {
+        return id >= 0 && id < numbers.size();
+    }
+
+    private static StringDictionary readDictionary(ByteBuffer buffer) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        int count = buffer.getInt();
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            // the values were written from a dictionary, so they are distinct and keep their ids
+            if (dictionary.idOf(bytes, 0, length) != i) {
+                throw new IOException("Cache file has duplicate numbers.");
+            }
+        }
+        return dictionary;
+    }
+
+    private static int[] readIntColumn(ByteBuffer buffer, int count) {
+        int[] column = new int[count];
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return column;
+    }
+}
@@ -0,0 +1,46 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CsvRow;
+
+/**
+ * Runs validation rules on a row in order and stops at the first failing one.
+ * Counts the result of every row, so valid rows and rejects per reason can be reported.
+ */
+public class ValidationPipeline {
+    private final RejectCounters counters;
+    private final ValidationRule[] rules;
+
+    public ValidationPipeline(RejectCounters counters, ValidationRule... rules) {
+        this.counters = counters;
+        this.rules = rules;
+    }
+
+    /**
+     * @return RejectReason.VALID if the row passes every rule, otherwise the reason of the first failing rule.
+     */
+    public RejectReason validate(CsvRow row) {
+        RejectReason reason = check(row);
+        if (reason == RejectReason.VALID) {
+            counters.increment(RejectReason.VALID);
+        }
+        return reason;
+    }
+
+    /**
+     * Runs the rules like validate, but only counts a failing row. Counting a row passing the rules is left
+     * to the caller, for rows which still have to pass a later stage of the validation.
+     *
+     * @return RejectReason.VALID if the row passes every rule, otherwise the reason of the first failing rule.
+     */
+    public RejectReason check(CsvRow row) {
+        for (ValidationRule rule : rules) {
+            RejectReason reason = rule.check(row);
+            if (reason != RejectReason.VALID) {
+                counters.increment(reason);
+                return reason;
+            }
+        }
+        return RejectReason.VALID;
+    }
+}
@@ -0,0 +1,15 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.CsvRow;
+
+/**
+ * One check of a validation pipeline.
+ */
+@FunctionalInterface
+public interface ValidationRule {
+    /**
+     * @return RejectReason.VALID if the row passes the check, otherwise the reason of rejecting it.
+     */
+    RejectReason check(CsvRow row);
+}
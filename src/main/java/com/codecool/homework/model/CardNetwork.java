@@ -0,0 +1,56 @@
+package com.codecool.homework.model;
+
+/**
+ * Card networks told apart by the leading digits (BIN) of the card number, with the lengths they issue.
+ */
+public enum CardNetwork {
+    // 13 digit Visa numbers are not listed, card numbers shorter than 15 digits are rejected before
+    VISA(16, 19),
+    MASTERCARD(16),
+    AMERICAN_EXPRESS(15),
+    // cards of other networks, e.g. Maestro or Discover, any length accepted by the validation
+    OTHER();
+
+    private final int[] lengths;
+
+    CardNetwork(int... lengths) {
+        this.lengths = lengths;
+    }
+
+    /**
+     * Classifies a card number by its first four digits: Visa starts with 4, Mastercard with 51-55 or 2221-2720,
+     * American Express with 34 or 37.
+     *
+     * @param firstFourDigits the first four digits of the card number as a number between 0 and 9999
+     *
+     * @return the network of the card.
+     */
+    public static CardNetwork of(int firstFourDigits) {
+        int firstTwoDigits = firstFourDigits / 100;
+        if (firstFourDigits / 1000 == 4) {
+            return VISA;
+        }
+        if ((firstTwoDigits >= 51 && firstTwoDigits <= 55) || (firstFourDigits >= 2221 && firstFourDigits <= 2720)) {
+            return MASTERCARD;
+        }
+        if (firstTwoDigits == 34 || firstTwoDigits == 37) {
+            return AMERICAN_EXPRESS;
+        }
+        return OTHER;
+    }
+
+    /**
+     * @return true if the network issues card numbers of the length, always true for OTHER.
+     */
+    public boolean issuesLength(int length) {
+        if (lengths.length == 0) {
+            return true;
+        }
+        for (int issuedLength : lengths) {
+            if (issuedLength == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package com.codecool.homework.model;
+
+import java.math.BigInteger;
+
+/**
+ * Sum of the payments of one Customer.
+ *
+ * @param key CustomerIndex key of the customer
+ * @param customer the Customer
+ * @param sum sum of the validated payments of the customer
+ */
+public record CustomerPaymentSum(int key, Customer customer, BigInteger sum) {
+}
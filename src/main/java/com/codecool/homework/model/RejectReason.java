@@ -0,0 +1,47 @@
+package com.codecool.homework.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.logging.Level;
+
+/**
+ * Results of validating a row of the input files, VALID or the reason of rejecting the row.
+ * The name is the machine-readable code written to the rejects file, the message goes to the application log.
+ */
+@Getter
+@AllArgsConstructor
+public enum RejectReason {
+    // result of the rows passing every validation rule
+    VALID(Level.INFO, "Valid row"),
+    CUSTOMER_FIELD_COUNT(Level.SEVERE, "Invalid number of data in customer"),
+    CUSTOMER_WEBSHOP_ID_LENGTH(Level.SEVERE, "Invalid webshop id in customer"),
+    CUSTOMER_WEBSHOP_ID_FORMAT(Level.SEVERE, "Not valid (WS##) webshop id format in customer"),
+    CUSTOMER_ID_LENGTH(Level.SEVERE, "Invalid id in customer"),
+    CUSTOMER_ID_FORMAT(Level.SEVERE, "Not valid (A##) id format in customer"),
+    CUSTOMER_DUPLICATE_ID(Level.SEVERE, "Duplicate id found in customer"),
+    CUSTOMER_NAME_EMPTY(Level.SEVERE, "Name is empty in customer"),
+    CUSTOMER_ADDRESS_EMPTY(Level.SEVERE, "Address is empty in customer"),
+    PAYMENT_FIELD_COUNT(Level.SEVERE, "Invalid number of data in payment"),
+    PAYMENT_WEBSHOP_ID_LENGTH(Level.SEVERE, "Invalid webshop id in payment"),
+    PAYMENT_WEBSHOP_ID_FORMAT(Level.SEVERE, "Not valid (WS##) webshop id format in payment"),
+    PAYMENT_CUSTOMER_ID_LENGTH(Level.SEVERE, "Invalid customer id in payment"),
+    PAYMENT_CUSTOMER_ID_FORMAT(Level.SEVERE, "Not valid (A##) customer id format in payment"),
+    PAYMENT_TYPE(Level.SEVERE, "Invalid type in payment"),
+    PAYMENT_AMOUNT_FORMAT(Level.SEVERE, "Invalid amount format in payment"),
+    PAYMENT_AMOUNT_ZERO(Level.WARNING, "Amount is 0 in payment"),
+    PAYMENT_ACCOUNT_AND_CARD(Level.SEVERE, "Both bank account number and credit/debit card number found in payment"),
+    PAYMENT_NO_ACCOUNT_OR_CARD(Level.SEVERE, "Neither bank account number nor credit/debit card number found in payment"),
+    PAYMENT_CARD_WITH_ACCOUNT(Level.SEVERE, "Card payment with bank account number found in payment"),
+    PAYMENT_TRANSFER_WITH_CARD(Level.SEVERE, "Transfer payment with credit/debit card number found in payment"),
+    PAYMENT_ACCOUNT_LENGTH(Level.SEVERE, "Bank account number length not valid in payment"),
+    PAYMENT_AMEX_PREFIX(Level.SEVERE, "Credit/debit card number is 15 long but not a valid American Express card"),
+    PAYMENT_CARD_LENGTH(Level.SEVERE, "Credit/debit card number length is not valid in payment"),
+    PAYMENT_CARD_NETWORK_LENGTH(Level.SEVERE, "Credit/debit card number length is not issued by its card network"),
+    PAYMENT_CARD_CHECKSUM(Level.SEVERE, "Credit/debit card number fails the Luhn check in payment"),
+    PAYMENT_DATE(Level.SEVERE, "Date is not valid in payment"),
+    PAYMENT_CUSTOMER_NOT_FOUND(Level.WARNING, "Customer not found for payment");
+
+    private final Level level;
+    private final String message;
+}
@@ -0,0 +1,28 @@
+package com.codecool.homework.model;
+
+import java.util.Map;
+
+/**
+ * Measurements of one stage of a run.
+ *
+ * @param name name of the stage
+ * @param wallNanos wall clock time of the stage in nanoseconds
+ * @param rows number of rows processed by the stage
+ * @param bytes number of bytes read or written by the stage
+ * @param allocatedBytes bytes allocated on the heap by the stage, -1 if the JVM does not measure it
+ * @param rejects number of rejected rows per reason
+ */
+public record StageMetrics(String name, long wallNanos, long rows, long bytes, long allocatedBytes,
+                           Map<RejectReason, Long> rejects) {
+
+    public long getRejectedCount() {
+        return rejects.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return processed rows per second, 0 if the stage took no measurable time.
+     */
+    public double getRowsPerSecond() {
+        return wallNanos > 0 ? rows * 1e9 / wallNanos : 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.codecool.homework.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Log-bucketed histogram of long amounts for estimating quantiles in constant memory.
+ * Amounts below 2^(precisionBits + 1) get a bucket of their own, above that every power of two range is split into
+ * 2^precisionBits equal buckets, so the amounts of a bucket are at most 2^-precisionBits apart relative to them.
+ * Negative amounts are counted by their magnitude in buckets of their own.
+ * The count, minimum and maximum are exact, and merging histograms adds their bucket counts,
+ * so a merged histogram is the same as one filled with all the amounts.
+ */
+public class AmountHistogram {
+    public static final int MIN_PRECISION_BITS = 1;
+    // the buckets are kept dense, at 10 bits every power of two range of the amounts takes 8 KB
+    public static final int MAX_PRECISION_BITS = 10;
+
+    private final int precisionBits;
+    // counts of the buckets of the positive amounts and zero, grown up to the highest bucket used
+    private long[] positiveCounts = new long[0];
+    // counts of the buckets of the magnitude of the negative amounts
+    private long[] negativeCounts = new long[0];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * @param precisionBits number of bits of the amounts kept exactly, between MIN_PRECISION_BITS and
+     *                      MAX_PRECISION_BITS
+     */
+    public AmountHistogram(int precisionBits) {
+        this.precisionBits = checkPrecisionBits(precisionBits);
+    }
+
+    /**
+     * @return the precision bits if they are between MIN_PRECISION_BITS and MAX_PRECISION_BITS.
+     *
+     * @throws IllegalArgumentException if they are not
+     */
+    public static int checkPrecisionBits(int precisionBits) {
+        if (precisionBits < MIN_PRECISION_BITS || precisionBits > MAX_PRECISION_BITS) {
+            throw new IllegalArgumentException(String.format("Precision bits must be between %d and %d: %d",
+                    MIN_PRECISION_BITS, MAX_PRECISION_BITS, precisionBits));
+        }
+        return precisionBits;
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            // the magnitude of Long.MIN_VALUE does not fit, it is counted as the largest negative bucket
+            int index = indexOf(amount == Long.MIN_VALUE ? Long.MAX_VALUE : -amount);
+            negativeCounts = ensureCapacity(negativeCounts, index);
+            negativeCounts[index]++;
+        } else {
+            int index = indexOf(amount);
+            positiveCounts = ensureCapacity(positiveCounts, index);
+            positiveCounts[index]++;
+        }
+        count++;
+        min = Math.min(min, amount);
+        max = Math.max(max, amount);
+    }
+
+    /**
+     * Adds the amounts of another histogram, e.g. the histogram of a partition of the Payments.
+     *
+     * @param other histogram of the same precision
+     */
+    public void addAll(AmountHistogram other) {
+        if (other.precisionBits != precisionBits) {
+            throw new IllegalArgumentException(String.format("Histograms of %d and %d precision bits cannot be merged.",
+                    precisionBits, other.precisionBits));
+        }
+        positiveCounts = addCounts(positiveCounts, other.positiveCounts);
+        negativeCounts = addCounts(negativeCounts, other.negativeCounts);
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest amount, Long.MAX_VALUE if the histogram is empty.
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest amount, Long.MIN_VALUE if the histogram is empty.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Estimates the amount at a quantile by the nearest rank: the largest amount of the bucket holding the
+     * ceil(quantile * count)th smallest amount, within the minimum and the maximum.
+     *
+     * @param quantile quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     *
+     * @return the estimated amount, at most 2^-precisionBits off relative to the exact one, 0 if empty.
+     */
+    public long getValueAtQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * count));
+        long seen = 0;
+        // negative amounts first, the largest magnitude is the smallest amount
+        for (int index = negativeCounts.length - 1; index >= 0; index--) {
+            seen += negativeCounts[index];
+            if (seen >= rank) {
+                return clamp(-lowestValueOf(index));
+            }
+        }
+        for (int index = 0; index < positiveCounts.length; index++) {
+            seen += positiveCounts[index];
+            if (seen >= rank) {
+                return clamp(highestValueOf(index));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the histogram in a format readable by readFrom, only the non-empty buckets are written.
+     *
+     * @param output output to write to
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(precisionBits);
+        output.writeLong(count);
+        output.writeLong(min);
+        output.writeLong(max);
+        writeCounts(output, positiveCounts);
+        writeCounts(output, negativeCounts);
+    }
+
+    /**
+     * @param input input to read from
+     *
+     * @return the histogram written by writeTo.
+     */
+    public static AmountHistogram readFrom(DataInput input) throws IOException {
+        AmountHistogram histogram = new AmountHistogram(input.readInt());
+        histogram.count = input.readLong();
+        histogram.min = input.readLong();
+        histogram.max = input.readLong();
+        histogram.positiveCounts = readCounts(input);
+        histogram.negativeCounts = readCounts(input);
+        return histogram;
+    }
+
+    /**
+     * @return bucket of a non-negative amount.
+     */
+    private int indexOf(long magnitude) {
+        int exponent = 63 - Long.numberOfLeadingZeros(magnitude);
+        if (exponent <= precisionBits) {
+            return (int) magnitude;
+        }
+        // the top precisionBits + 1 bits of the amount, shifted by the number of bits dropped
+        int shift = exponent - precisionBits;
+        return (shift << precisionBits) + (int) (magnitude >>> shift);
+    }
+
+    private long lowestValueOf(int index) {
+        int subBucketCount = 1 << precisionBits;
+        if (index < 2 * subBucketCount) {
+            return index;
+        }
+        int shift = (index >>> precisionBits) - 1;
+        long mantissa = (index & (subBucketCount - 1)) + subBucketCount;
+        return mantissa << shift;
+    }
+
+    private long highestValueOf(int index) {
+        int shift = Math.max(0, (index >>> precisionBits) - 1);
+        // cannot overflow, the largest bucket ends at Long.MAX_VALUE
+        return lowestValueOf(index) + ((1L << shift) - 1);
+    }
+
+    private long clamp(long value) {
+        return Math.min(Math.max(value, min), max);
+    }
+
+    private static long[] ensureCapacity(long[] counts, int index) {
+        if (index < counts.length) {
+            return counts;
+        }
+        return Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+    }
+
+    private static long[] addCounts(long[] counts, long[] otherCounts) {
+        long[] sums = otherCounts.length > counts.length ? Arrays.copyOf(counts, otherCounts.length) : counts;
+        for (int index = 0; index < otherCounts.length; index++) {
+            sums[index] += otherCounts[index];
+        }
+        return sums;
+    }
+
+    private static void writeCounts(DataOutput output, long[] counts) throws IOException {
+        int lastUsed = counts.length - 1;
+        while (lastUsed >= 0 && counts[lastUsed] == 0) {
+            lastUsed--;
+        }
+        int used = 0;
+        for (int index = 0; index <= lastUsed; index++) {
+            used += counts[index] == 0 ? 0 : 1;
+        }
+        output.writeInt(lastUsed + 1);
+        output.writeInt(used);
+        for (int index = 0; index <= lastUsed; index++) {
+            if (counts[index] != 0) {
+                output.writeInt(index);
+                output.writeLong(counts[index]);
+            }
+        }
+    }
+
+    private static long[] readCounts(DataInput input) throws IOException {
+        long[] counts = new long[input.readInt()];
+        int used = input.readInt();
+        for (int i = 0; i < used; i++) {
+            counts[input.readInt()] = input.readLong();
+        }
+        return counts;
+    }
+}
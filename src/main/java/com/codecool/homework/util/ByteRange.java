@@ -0,0 +1,10 @@
+package com.codecool.homework.util;
+
+/**
+ * Range of bytes in a file, from start (inclusive) to end (exclusive).
+ */
+public record ByteRange(long start, long end) {
+    public long length() {
+        return end - start;
+    }
+}
@@ -0,0 +1,71 @@
+package com.codecool.homework.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Collects card numbers from csv rows for checking them in batches with a LuhnChecker.
+ * Every number is copied as digit values, right aligned into WIDTH bytes and padded with zeros,
+ * which do not change the Luhn sum, so all numbers can be checked the same way.
+ * Each number carries a tag of the caller, the tags of the failing numbers are reported by check.
+ */
+public class CardNumberBatch {
+    // digits per number, card numbers have at most 19
+    public static final int WIDTH = 32;
+    public static final int CAPACITY = 1024;
+
+    private final LuhnChecker checker;
+    private final byte[] digits = new byte[CAPACITY * WIDTH];
+    private final long[] tags = new long[CAPACITY];
+    private final BitSet failures = new BitSet(CAPACITY);
+    private int count;
+
+    public CardNumberBatch(LuhnChecker checker) {
+        this.checker = checker;
+    }
+
+    /**
+     * Adds the card number in a field of a csv row, a number with other characters than digits fails the check.
+     *
+     * @param row csv row holding the card number
+     * @param field index of the card number field
+     * @param tag reported by check if the number fails
+     */
+    public void add(CsvRow row, int field, long tag) {
+        int length = Math.min(row.getFieldLength(field), WIDTH);
+        int start = count * WIDTH;
+        int digitsStart = start + WIDTH - length;
+        Arrays.fill(digits, start, digitsStart, (byte) 0);
+        for (int i = 0; i < length; i++) {
+            byte character = row.byteAt(field, i);
+            if (character < '0' || character > '9') {
+                failures.set(count);
+                character = '0';
+            }
+            digits[digitsStart + i] = (byte) (character - '0');
+        }
+        if (row.getFieldLength(field) > WIDTH) {
+            failures.set(count);
+        }
+        tags[count++] = tag;
+    }
+
+    public boolean isFull() {
+        return count == CAPACITY;
+    }
+
+    /**
+     * Checks the numbers added since the last check, then empties the batch.
+     *
+     * @param failedTags called with the tag of every failing number, in the order the numbers were added
+     */
+    public void check(LongConsumer failedTags) {
+        checker.check(digits, count, failures);
+        for (int number = failures.nextSetBit(0); number >= 0; number = failures.nextSetBit(number + 1)) {
+            failedTags.accept(tags[number]);
+        }
+        failures.clear();
+        count = 0;
+    }
+}
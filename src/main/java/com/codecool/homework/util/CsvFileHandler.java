@@ -3,34 +3,140 @@ package com.codecool.homework.util;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Scanner;
+import java.util.function.Consumer;
 
 @Component
 public class CsvFileHandler {
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private final MappedCsvReader mappedCsvReader = new MappedCsvReader();
+    private final GzipCsvReader gzipCsvReader = new GzipCsvReader();
+
+    /**
+     * @return true if the file is gzip compressed, judged by its .gz extension.
+     */
+    public boolean isCompressed(File file) {
+        return file.getName().endsWith(GZIP_EXTENSION);
+    }
+
     /**
      * Reads the data from given file and throws FileNotFoundException if not found.
+     * Kept for compatibility, prefer forEachRow which does not hold the whole file in memory.
      *
      * @return data read from the file as a 2d matrix of Strings.
      *
      * @author Bálint Mészáros
      */
-    public List<List<String>> readCsvData(File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file);
+    public List<List<String>> readCsvData(File file) throws IOException {
         List<List<String>> data = new ArrayList<>();
-        while (scanner.hasNextLine()) {
-            List<String> row = List.of(scanner.nextLine().split(";"));
-            data.add(row);
-        }
-        scanner.close();
+        forEachRow(file, row -> data.add(row.toList()));
         return data;
     }
 
+    /**
+     * Streams the rows of the given file decoded as UTF-8 and throws FileNotFoundException if not found.
+     * Gzip compressed files are decompressed on the fly.
+     *
+     * @param file csv file to read
+     * @param rowConsumer called with every row, the row object is reused so it must not be kept
+     *
+     * @return number of rows read.
+     */
+    public long forEachRow(File file, Consumer<CsvRow> rowConsumer) throws IOException {
+        try {
+            if (isCompressed(file)) {
+                return gzipCsvReader.forEachRow(file.toPath(), rowConsumer);
+            }
+            return mappedCsvReader.forEachRow(file.toPath(), rowConsumer);
+        } catch (NoSuchFileException noSuchFileException) {
+            throw new FileNotFoundException(file.getPath());
+        }
+    }
+
+    /**
+     * Streams the rows starting in the given byte range of the file, rows are numbered from 1 within the range.
+     * Compressed files can only be read as a whole, with the single range returned by splitIntoChunks.
+     *
+     * @param file csv file to read
+     * @param range line aligned byte range of the file, as returned by splitIntoChunks
+     * @param rowConsumer called with every row, the row object is reused so it must not be kept
+     *
+     * @return number of rows read.
+     */
+    public long forEachRow(File file, ByteRange range, Consumer<CsvRow> rowConsumer) throws IOException {
+        try {
+            if (isCompressed(file)) {
+                if (range.start() != 0) {
+                    throw new IllegalArgumentException("Compressed file can only be read from the start: " + file);
+                }
+                return gzipCsvReader.forEachRow(file.toPath(), rowConsumer);
+            }
+            return mappedCsvReader.forEachRow(file.toPath(), range.start(), range.end(), rowConsumer);
+        } catch (NoSuchFileException noSuchFileException) {
+            throw new FileNotFoundException(file.getPath());
+        }
+    }
+
+    /**
+     * Splits the file into line aligned chunks which can be read independently.
+     * A compressed file is returned as a single chunk, because it can only be decompressed from the start.
+     *
+     * @param file csv file to split
+     * @param chunkCount maximum number of chunks
+     *
+     * @return consecutive byte ranges covering the whole file.
+     */
+    public List<ByteRange> splitIntoChunks(File file, int chunkCount) throws IOException {
+        try {
+            if (isCompressed(file)) {
+                return List.of(new ByteRange(0, file.length()));
+            }
+            return mappedCsvReader.splitIntoLineAlignedRanges(file.toPath(), chunkCount);
+        } catch (NoSuchFileException noSuchFileException) {
+            throw new FileNotFoundException(file.getPath());
+        }
+    }
+
+    /**
+     * Splits a byte range of the file into line aligned chunks which can be read independently.
+     * A compressed file is returned as a single chunk, because it can only be decompressed from the start.
+     *
+     * @param file csv file to split
+     * @param range byte range to split, has to start at the beginning of a line
+     * @param chunkCount maximum number of chunks
+     *
+     * @return consecutive byte ranges covering the given range.
+     */
+    public List<ByteRange> splitIntoChunks(File file, ByteRange range, int chunkCount) throws IOException {
+        try {
+            if (isCompressed(file)) {
+                return List.of(new ByteRange(0, file.length()));
+            }
+            return mappedCsvReader.splitIntoLineAlignedRanges(file.toPath(), range.start(), range.end(), chunkCount);
+        } catch (NoSuchFileException noSuchFileException) {
+            throw new FileNotFoundException(file.getPath());
+        }
+    }
+
+    /**
+     * @return offset after the last line terminator of the file, 0 if it has none.
+     */
+    public long endOfLastCompleteLine(File file) throws IOException {
+        try {
+            return mappedCsvReader.endOfLastCompleteLine(file.toPath());
+        } catch (NoSuchFileException noSuchFileException) {
+            throw new FileNotFoundException(file.getPath());
+        }
+    }
+
     public void writeCsvData(Collection<String> data, String filename) throws IOException {
         File csvOutputFile = new File(filename);
-        try (PrintWriter printWriter = new PrintWriter(csvOutputFile)) {
+        try (PrintWriter printWriter = new PrintWriter(csvOutputFile, StandardCharsets.UTF_8)) {
             data.forEach(printWriter::println);
         }
     }
@@ -0,0 +1,34 @@
+package com.codecool.homework.util;
+
+import java.nio.file.Path;
+
+/**
+ * Names of the csv files the batch and daemon modes pick up, plain or gzip compressed.
+ */
+public final class CsvFileNames {
+    public static final String CSV_EXTENSION = ".csv";
+    public static final String COMPRESSED_CSV_EXTENSION = ".csv.gz";
+
+    private CsvFileNames() {
+    }
+
+    /**
+     * @return true if the name ends with .csv or .csv.gz.
+     */
+    public static boolean isCsv(String name) {
+        return name.endsWith(CSV_EXTENSION) || name.endsWith(COMPRESSED_CSV_EXTENSION);
+    }
+
+    /**
+     * @param file path of a file
+     *
+     * @return name of the file without its .csv or .csv.gz extension, the whole name for other files.
+     */
+    public static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(COMPRESSED_CSV_EXTENSION)) {
+            return name.substring(0, name.length() - COMPRESSED_CSV_EXTENSION.length());
+        }
+        return name.endsWith(CSV_EXTENSION) ? name.substring(0, name.length() - CSV_EXTENSION.length()) : name;
+    }
+}
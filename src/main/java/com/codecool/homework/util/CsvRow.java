@@ -0,0 +1,181 @@
+package com.codecool.homework.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One row of a semicolon separated csv file, exposed as offset/length slices of the underlying buffer.
+ * Instances are reused by the readers for every row, so a row must not be kept after the consumer returns;
+ * copy the needed fields with getField instead.
+ */
+public class CsvRow {
+    private static final byte SEPARATOR = ';';
+    private static final int INITIAL_FIELD_CAPACITY = 8;
+
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+    private long rowNumber;
+    private int fieldCount;
+    private int[] fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+    private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+    // reused for decoding the fields, ByteBuffers of mapped files have no accessible array
+    private byte[] decodeBuffer = new byte[256];
+
+    /**
+     * Points the row to a line of the buffer and splits it into fields.
+     *
+     * @param buffer buffer holding the line
+     * @param lineStart index of the first byte of the line
+     * @param lineEnd index after the last byte of the line, without line terminator
+     * @param rowNumber 1 based number of the row in the file
+     */
+    void reset(ByteBuffer buffer, int lineStart, int lineEnd, long rowNumber) {
+        this.buffer = buffer;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.rowNumber = rowNumber;
+        fieldCount = 0;
+        int fieldStart = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, lineEnd);
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Counts the fields the same way as String.split(";") does, trailing empty fields are not counted.
+     *
+     * @return number of fields up to the last non-empty one, at least 1.
+     */
+    public int getSplitFieldCount() {
+        int lastField = fieldCount - 1;
+        while (lastField > 0 && isFieldEmpty(lastField)) {
+            lastField--;
+        }
+        return lastField + 1;
+    }
+
+    /**
+     * @return index of the first byte of the field in the buffer.
+     */
+    public int getFieldOffset(int field) {
+        return fieldStarts[field];
+    }
+
+    /**
+     * @return length of the field in bytes.
+     */
+    public int getFieldLength(int field) {
+        return fieldEnds[field] - fieldStarts[field];
+    }
+
+    public boolean isFieldEmpty(int field) {
+        return fieldEnds[field] == fieldStarts[field];
+    }
+
+    public byte byteAt(int field, int index) {
+        return buffer.get(fieldStarts[field] + index);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Compares the field to an ASCII text without decoding it.
+     */
+    public boolean fieldEquals(int field, byte[] ascii) {
+        if (getFieldLength(field) != ascii.length) {
+            return false;
+        }
+        int start = fieldStarts[field];
+        for (int i = 0; i < ascii.length; i++) {
+            if (buffer.get(start + i) != ascii[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the field decoded as UTF-8.
+     */
+    public String getField(int field) {
+        if (isFieldEmpty(field)) {
+            return "";
+        }
+        return decode(fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * @return the whole row decoded as UTF-8, without line terminator.
+     */
+    public String getLine() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * @return length of the row in bytes, without line terminator.
+     */
+    public int getLineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /**
+     * Copies the bytes of the whole row, for keeping it after the consumer returns without decoding it.
+     *
+     * @param target array to copy the row to
+     * @param offset index of target to copy the first byte to
+     */
+    public void copyLine(byte[] target, int offset) {
+        buffer.get(lineStart, target, offset, getLineLength());
+    }
+
+    /**
+     * Decodes the row the same way as String.split(";") does, trailing empty fields are removed.
+     *
+     * @return fields of the row as list of Strings.
+     */
+    public List<String> toList() {
+        int splitFieldCount = getSplitFieldCount();
+        List<String> fields = new ArrayList<>(splitFieldCount);
+        for (int field = 0; field < splitFieldCount; field++) {
+            fields.add(getField(field));
+        }
+        return List.copyOf(fields);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (length > decodeBuffer.length) {
+            decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+        }
+        buffer.get(start, decodeBuffer, 0, length);
+        return new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -2,19 +2,190 @@ package com.codecool.homework.util;
 
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Component
 public class DateValidatorForNotIsoFormat {
+    // returned by toEpochDay for invalid dates
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
 
+    private static final int DATE_DIGITS = 8;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    private static final int DAYS_0000_TO_1970 = 719_528;
+    private static final int DAYS_PER_400_YEARS = 146_097;
+    // payment dates repeat a lot, so a small cache saves converting them over and over
+    private static final int CACHE_SIZE = 64;
+
+    // recently converted dates as yyyyMMdd in the upper and epoch day in the lower half, 0 for an empty entry
+    // read and written opaquely, so the threads validating in parallel always see whole entries
+    private final AtomicLongArray recentDates = new AtomicLongArray(CACHE_SIZE);
+
+    /**
+     * Checks if the date is a valid yyyyMMdd date once the dots are removed, e.g. 2021.01.01.
+     */
     public boolean isValid(String date) {
-        try {
-            LocalDate.parse(date.replace(".", ""), DateTimeFormatter.BASIC_ISO_DATE);
-        } catch (DateTimeParseException dateTimeParseException) {
+        return toEpochDay(date) != INVALID_DATE;
+    }
+
+    /**
+     * Checks the date in a field of a csv row the same way as isValid(String), without decoding the field.
+     */
+    public boolean isValid(CsvRow row, int field) {
+        return toEpochDay(row, field) != INVALID_DATE;
+    }
+
+    /**
+     * Converts a date valid for isValid(String) to the number of days since 1970.01.01.
+     *
+     * @return the epoch day or INVALID_DATE if the date is not valid.
+     */
+    public int toEpochDay(String date) {
+        int digits = 0;
+        int value = 0;
+        for (int i = 0; i < date.length(); i++) {
+            char character = date.charAt(i);
+            if (character == '.') {
+                continue;
+            }
+            if (character < '0' || character > '9' || ++digits > DATE_DIGITS) {
+                return INVALID_DATE;
+            }
+            value = value * 10 + (character - '0');
+        }
+        return digits == DATE_DIGITS ? toEpochDay(value) : INVALID_DATE;
+    }
+
+    /**
+     * Converts the date in a field of a csv row the same way as toEpochDay(String), without decoding the field.
+     *
+     * @return the epoch day or INVALID_DATE if the date is not valid.
+     */
+    public int toEpochDay(CsvRow row, int field) {
+        int digits = 0;
+        int value = 0;
+        for (int i = 0; i < row.getFieldLength(field); i++) {
+            byte character = row.byteAt(field, i);
+            if (character == '.') {
+                continue;
+            }
+            if (character < '0' || character > '9' || ++digits > DATE_DIGITS) {
+                return INVALID_DATE;
+            }
+            value = value * 10 + (character - '0');
+        }
+        return digits == DATE_DIGITS ? toEpochDay(value) : INVALID_DATE;
+    }
+
+    /**
+     * Formats an epoch day as yyyy.MM.dd, the format of the payments file.
+     */
+    public static String format(int epochDay) {
+        int[] yearMonthDay = toYearMonthDay(epochDay);
+        StringBuilder stringBuilder = new StringBuilder(10);
+        appendDigits(stringBuilder, yearMonthDay[0], 4).append('.');
+        appendDigits(stringBuilder, yearMonthDay[1], 2).append('.');
+        return appendDigits(stringBuilder, yearMonthDay[2], 2).toString();
+    }
+
+    /**
+     * Formats the month of an epoch day as yyyy.MM.
+     */
+    public static String formatMonth(int epochDay) {
+        int[] yearMonthDay = toYearMonthDay(epochDay);
+        StringBuilder stringBuilder = new StringBuilder(7);
+        appendDigits(stringBuilder, yearMonthDay[0], 4).append('.');
+        return appendDigits(stringBuilder, yearMonthDay[1], 2).toString();
+    }
+
+    /**
+     * @return the epoch day of the first day of the month of an epoch day.
+     */
+    public static int firstDayOfMonth(int epochDay) {
+        int[] yearMonthDay = toYearMonthDay(epochDay);
+        return epochDay - yearMonthDay[2] + 1;
+    }
+
+    private int toEpochDay(int yyyyMMdd) {
+        int slot = yyyyMMdd & (CACHE_SIZE - 1);
+        long recentDate = recentDates.getOpaque(slot);
+        if (recentDate != 0 && (int) (recentDate >>> 32) == yyyyMMdd) {
+            return (int) recentDate;
+        }
+        if (!isValidDate(yyyyMMdd)) {
+            return INVALID_DATE;
+        }
+        int epochDay = computeEpochDay(yyyyMMdd / 10000, yyyyMMdd / 100 % 100, yyyyMMdd % 100);
+        recentDates.setOpaque(slot, ((long) yyyyMMdd << 32) | (epochDay & 0xFFFF_FFFFL));
+        return epochDay;
+    }
+
+    /**
+     * Same arithmetic as LocalDate.toEpochDay for the years 0 to 9999 of the yyyyMMdd format.
+     */
+    private static int computeEpochDay(int year, int month, int day) {
+        int total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Same arithmetic as LocalDate.ofEpochDay for the years 0 to 9999.
+     *
+     * @return year, month and day of month.
+     */
+    private static int[] toYearMonthDay(int epochDay) {
+        // days since 0000.03.01, so the leap day is at the end of the year
+        int zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        // January and February of the year 0 are moved a 400 year cycle later
+        int cycleAdjustment = 0;
+        if (zeroDay < 0) {
+            zeroDay += DAYS_PER_400_YEARS;
+            cycleAdjustment = -400;
+        }
+        int yearEstimate = (int) ((400L * zeroDay + 591) / DAYS_PER_400_YEARS);
+        int dayOfYear = zeroDay - (365 * yearEstimate + yearEstimate / 4 - yearEstimate / 100 + yearEstimate / 400);
+        if (dayOfYear < 0) {
+            yearEstimate--;
+            dayOfYear = zeroDay - (365 * yearEstimate + yearEstimate / 4 - yearEstimate / 100 + yearEstimate / 400);
+        }
+        int marchMonth = (dayOfYear * 5 + 2) / 153;
+        int month = (marchMonth + 2) % 12 + 1;
+        int day = dayOfYear - (marchMonth * 306 + 5) / 10 + 1;
+        return new int[]{yearEstimate + marchMonth / 10 + cycleAdjustment, month, day};
+    }
+
+    private static StringBuilder appendDigits(StringBuilder stringBuilder, int value, int digits) {
+        int divisor = 1;
+        for (int i = 1; i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            stringBuilder.append((char) ('0' + value / divisor % 10));
+        }
+        return stringBuilder;
+    }
+
+    private static boolean isValidDate(int yyyyMMdd) {
+        int year = yyyyMMdd / 10000;
+        int month = yyyyMMdd / 100 % 100;
+        int day = yyyyMMdd % 100;
+        if (month < 1 || month > 12 || day < 1) {
             return false;
         }
-        return true;
+        if (month == 2 && isLeapYear(year)) {
+            return day <= 29;
+        }
+        return day <= DAYS_IN_MONTH[month - 1];
+    }
+
+    private static boolean isLeapYear(int year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
     }
 }
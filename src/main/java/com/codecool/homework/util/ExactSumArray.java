@@ -0,0 +1,136 @@
+package com.codecool.homework.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Array of exact sums of long values.
+ * Sums are kept in a long array with overflow checked additions and only switch to BigInteger
+ * for the slots where an overflow actually happens, so adding does not allocate in the common case.
+ */
+public class ExactSumArray {
+    private final long[] sums;
+    // null until the sum of the slot overflows, the slot's value is overflowSums[i] from then on
+    private BigInteger[] overflowSums;
+
+    public ExactSumArray(int size) {
+        this.sums = new long[size];
+    }
+
+    public void add(int index, long value) {
+        if (overflowSums != null && overflowSums[index] != null) {
+            overflowSums[index] = overflowSums[index].add(BigInteger.valueOf(value));
+            return;
+        }
+        try {
+            sums[index] = Math.addExact(sums[index], value);
+        } catch (ArithmeticException overflow) {
+            if (overflowSums == null) {
+                overflowSums = new BigInteger[sums.length];
+            }
+            overflowSums[index] = BigInteger.valueOf(sums[index]).add(BigInteger.valueOf(value));
+        }
+    }
+
+    /**
+     * Adds the sum of a slot of another array, e.g. when merging sums computed separately.
+     *
+     * @param index slot to add to
+     * @param other array of the sum to add
+     * @param otherIndex slot of the sum in the other array
+     */
+    public void add(int index, ExactSumArray other, int otherIndex) {
+        if (other.fitsInLong(otherIndex)) {
+            add(index, other.sums[otherIndex]);
+            return;
+        }
+        if (overflowSums == null) {
+            overflowSums = new BigInteger[sums.length];
+        }
+        overflowSums[index] = get(index).add(other.overflowSums[otherIndex]);
+    }
+
+    /**
+     * @return the sum of the slot.
+     */
+    public BigInteger get(int index) {
+        if (overflowSums != null && overflowSums[index] != null) {
+            return overflowSums[index];
+        }
+        return BigInteger.valueOf(sums[index]);
+    }
+
+    /**
+     * @return true if the sum of the slot still fits into a long, so getLong returns the exact value.
+     */
+    public boolean fitsInLong(int index) {
+        return overflowSums == null || overflowSums[index] == null;
+    }
+
+    public long getLong(int index) {
+        return sums[index];
+    }
+
+    public int size() {
+        return sums.length;
+    }
+
+    /**
+     * @return a copy with more slots, the new slots are 0.
+     */
+    public ExactSumArray copyOf(int size) {
+        ExactSumArray copy = new ExactSumArray(size);
+        System.arraycopy(sums, 0, copy.sums, 0, sums.length);
+        if (overflowSums != null) {
+            copy.overflowSums = Arrays.copyOf(overflowSums, size);
+        }
+        return copy;
+    }
+
+    /**
+     * Writes the sums in a format readable by readFrom.
+     *
+     * @param output output to write to
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(sums.length);
+        for (int i = 0; i < sums.length; i++) {
+            if (fitsInLong(i)) {
+                output.writeBoolean(false);
+                output.writeLong(sums[i]);
+            } else {
+                byte[] overflowSum = overflowSums[i].toByteArray();
+                output.writeBoolean(true);
+                output.writeInt(overflowSum.length);
+                output.write(overflowSum);
+            }
+        }
+    }
+
+    /**
+     * Reads sums written by writeTo.
+     *
+     * @param input input to read from
+     *
+     * @return the sums read.
+     */
+    public static ExactSumArray readFrom(DataInput input) throws IOException {
+        ExactSumArray sumArray = new ExactSumArray(input.readInt());
+        for (int i = 0; i < sumArray.sums.length; i++) {
+            if (input.readBoolean()) {
+                byte[] overflowSum = new byte[input.readInt()];
+                input.readFully(overflowSum);
+                if (sumArray.overflowSums == null) {
+                    sumArray.overflowSums = new BigInteger[sumArray.sums.length];
+                }
+                sumArray.overflowSums[i] = new BigInteger(overflowSum);
+            } else {
+                sumArray.sums[i] = input.readLong();
+            }
+        }
+        return sumArray;
+    }
+}
@@ -0,0 +1,63 @@
+package com.codecool.homework.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 content hashes of files or of parts of files, used to detect changed inputs.
+ */
+public final class FileDigest {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private FileDigest() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+
+    /**
+     * @return SHA-256 hash of the whole file.
+     */
+    public static byte[] hash(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, file, 0, file.length());
+        return digest.digest();
+    }
+
+    /**
+     * Adds a byte range of the file to the digest.
+     *
+     * @param digest digest to update
+     * @param file file to read
+     * @param start offset of the first byte to add
+     * @param end offset after the last byte to add
+     */
+    public static void update(MessageDigest digest, File file, long start, long end) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long position = start;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException(String.format("%s ended at %d before offset %d.", file, position, end));
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+        }
+    }
+}
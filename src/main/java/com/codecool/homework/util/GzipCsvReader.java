@@ -0,0 +1,192 @@
+package com.codecool.homework.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams the rows of a gzip compressed csv file without writing the decompressed data anywhere.
+ * A background thread inflates the file into a fixed set of blocks handed over to the parsing thread
+ * through a bounded queue and recycled once parsed, so inflating and parsing overlap with bounded memory.
+ */
+public class GzipCsvReader {
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    // blocks in flight between the threads, the inflater waits for a free block when all are queued
+    private static final int BLOCK_COUNT = 4;
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final int blockSize;
+
+    public GzipCsvReader() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    GzipCsvReader(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Reads every row of the compressed file.
+     *
+     * @param path gzip compressed csv file to read
+     * @param rowConsumer called with every row, the row object is reused
+     *
+     * @return number of rows read.
+     */
+    public long forEachRow(Path path, Consumer<CsvRow> rowConsumer) throws IOException {
+        // the file is closed even if it is not valid gzip and the GZIPInputStream cannot be created
+        try (InputStream compressed = Files.newInputStream(path);
+             InputStream decompressed = new GZIPInputStream(compressed, INPUT_BUFFER_SIZE)) {
+            Inflater inflater = new Inflater(decompressed);
+            Thread inflaterThread = new Thread(inflater, "gzip-inflater");
+            inflaterThread.setDaemon(true);
+            inflaterThread.start();
+            try {
+                return parse(inflater, rowConsumer);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + path, interruptedException);
+            } finally {
+                // stops the inflater if parsing ended early, the input is closed once it finished
+                inflaterThread.interrupt();
+                try {
+                    inflaterThread.join();
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private long parse(Inflater inflater, Consumer<CsvRow> rowConsumer) throws IOException, InterruptedException {
+        CsvRow row = new CsvRow();
+        // the start of a row continued in the next block
+        byte[] carry = new byte[256];
+        ByteBuffer carryBuffer = ByteBuffer.wrap(carry);
+        int carryLength = 0;
+        long rowNumber = 0;
+        boolean firstBlock = true;
+        Block block;
+        while ((block = inflater.filledBlocks.take()) != Block.END_OF_FILE) {
+            byte[] data = block.data;
+            int lineStart = firstBlock ? skipByteOrderMark(data, block.length) : 0;
+            firstBlock = false;
+            for (int i = lineStart; i < block.length; i++) {
+                if (data[i] != LINE_FEED) {
+                    continue;
+                }
+                if (carryLength > 0) {
+                    int lineLength = carryLength + i - lineStart;
+                    if (lineLength > carry.length) {
+                        carry = Arrays.copyOf(carry, Math.max(lineLength, carry.length * 2));
+                        carryBuffer = ByteBuffer.wrap(carry);
+                    }
+                    System.arraycopy(data, lineStart, carry, carryLength, i - lineStart);
+                    row.reset(carryBuffer, 0, trimCarriageReturn(carry, 0, lineLength), ++rowNumber);
+                    carryLength = 0;
+                } else {
+                    row.reset(block.buffer, lineStart, trimCarriageReturn(data, lineStart, i), ++rowNumber);
+                }
+                rowConsumer.accept(row);
+                lineStart = i + 1;
+            }
+            int remaining = block.length - lineStart;
+            if (carryLength + remaining > carry.length) {
+                carry = Arrays.copyOf(carry, Math.max(carryLength + remaining, carry.length * 2));
+                carryBuffer = ByteBuffer.wrap(carry);
+            }
+            System.arraycopy(data, lineStart, carry, carryLength, remaining);
+            carryLength += remaining;
+            inflater.freeBlocks.put(block);
+        }
+        if (inflater.failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (inflater.failure != null) {
+            throw new IOException("Decompressing failed.", inflater.failure);
+        }
+        // last line without line terminator
+        if (carryLength > 0) {
+            row.reset(carryBuffer, 0, trimCarriageReturn(carry, 0, carryLength), ++rowNumber);
+            rowConsumer.accept(row);
+        }
+        return rowNumber;
+    }
+
+    private static int skipByteOrderMark(byte[] data, int length) {
+        if (length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int trimCarriageReturn(byte[] data, int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && data[lineEnd - 1] == CARRIAGE_RETURN) {
+            return lineEnd - 1;
+        }
+        return lineEnd;
+    }
+
+    private static class Block {
+        // marks the end of the blocks for the parsing thread
+        static final Block END_OF_FILE = new Block(0);
+
+        final byte[] data;
+        final ByteBuffer buffer;
+        int length;
+
+        Block(int size) {
+            this.data = new byte[size];
+            this.buffer = ByteBuffer.wrap(data);
+        }
+    }
+
+    /**
+     * Inflates the input into free blocks and queues them for parsing, until the end of the input.
+     */
+    private class Inflater implements Runnable {
+        private final InputStream input;
+        private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+        // one more place for the end marker, so it can always be queued
+        private final BlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT + 1);
+        private volatile Throwable failure;
+
+        Inflater(InputStream input) {
+            this.input = input;
+            for (int i = 0; i < BLOCK_COUNT; i++) {
+                freeBlocks.add(new Block(blockSize));
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                int length = blockSize;
+                while (length == blockSize) {
+                    Block block = freeBlocks.take();
+                    length = input.readNBytes(block.data, 0, blockSize);
+                    block.length = length;
+                    if (length > 0) {
+                        filledBlocks.put(block);
+                    }
+                }
+            } catch (InterruptedException interruptedException) {
+                // parsing ended early, nobody waits for more blocks
+            } catch (Throwable throwable) {
+                failure = throwable;
+            } finally {
+                // always queued, the parsing thread would wait for it forever otherwise
+                filledBlocks.add(Block.END_OF_FILE);
+            }
+        }
+    }
+}
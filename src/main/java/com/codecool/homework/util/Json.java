@@ -0,0 +1,52 @@
+package com.codecool.homework.util;
+
+/**
+ * Helpers for writing JSON by hand, as the run summaries and the query answers are.
+ */
+public final class Json {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    /**
+     * Escapes a text for a JSON string: quotes, backslashes and every control character,
+     * which are not allowed unescaped in JSON strings.
+     *
+     * @param text text to escape
+     *
+     * @return the text to put between the quotes of a JSON string.
+     */
+    public static String escape(String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            String replacement = switch (character) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\b' -> "\\b";
+                case '\f' -> "\\f";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> character < 0x20 ? unicodeEscape(character) : null;
+            };
+            if (replacement != null && escaped == null) {
+                // most texts need no escaping, they are returned without copying
+                escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(character);
+                }
+            }
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+
+    private static String unicodeEscape(char character) {
+        return "\\u00" + HEX_DIGITS[character >> 4] + HEX_DIGITS[character & 0xF];
+    }
+}
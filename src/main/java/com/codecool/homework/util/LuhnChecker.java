@@ -0,0 +1,36 @@
+package com.codecool.homework.util;
+
+import java.util.BitSet;
+
+/**
+ * Luhn (mod 10) check of a batch of card numbers laid out by CardNumberBatch.
+ */
+public interface LuhnChecker {
+    /**
+     * Marks the numbers failing the Luhn check, numbers already marked stay marked.
+     *
+     * @param digits digit values of the numbers, CardNumberBatch.WIDTH per number, right aligned and zero padded
+     * @param count number of card numbers in digits
+     * @param failures set at the index of every failing number
+     */
+    void check(byte[] digits, int count, BitSet failures);
+
+    /**
+     * Creates the vectorized checker if the jdk.incubator.vector module was added to the JVM
+     * (--add-modules jdk.incubator.vector), the scalar checker otherwise.
+     *
+     * @return the fastest checker available.
+     */
+    static LuhnChecker create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded by name, so the vector classes are only linked if the module is there
+                return (LuhnChecker) Class.forName("com.codecool.homework.util.VectorLuhnChecker")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError vectorApiNotUsable) {
+                return new ScalarLuhnChecker();
+            }
+        }
+        return new ScalarLuhnChecker();
+    }
+}
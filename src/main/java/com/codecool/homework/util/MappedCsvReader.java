@@ -0,0 +1,200 @@
+package com.codecool.homework.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams the rows of a csv file from memory mapped windows of the file.
+ * Fields are handed over as slices of the mapped buffer, nothing is decoded unless the consumer asks for it.
+ */
+public class MappedCsvReader {
+    // mapped windows are limited to 2 GB by the ByteBuffer api, rows crossing a window end are re-mapped
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final int windowSize;
+
+    public MappedCsvReader() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedCsvReader(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Reads every row of the file.
+     *
+     * @param path csv file to read
+     * @param rowConsumer called with every row, the row object is reused
+     *
+     * @return number of rows read.
+     */
+    public long forEachRow(Path path, Consumer<CsvRow> rowConsumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return forEachRow(channel, 0, channel.size(), rowConsumer);
+        }
+    }
+
+    /**
+     * Reads the rows starting in the given byte range of the file.
+     * The range has to start at the beginning of a line, rows are numbered from 1 within the range.
+     *
+     * @param path csv file to read
+     * @param start offset of the first byte of the range
+     * @param end offset after the last byte of the range
+     * @param rowConsumer called with every row, the row object is reused
+     *
+     * @return number of rows read.
+     */
+    public long forEachRow(Path path, long start, long end, Consumer<CsvRow> rowConsumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return forEachRow(channel, start, Math.min(end, channel.size()), rowConsumer);
+        }
+    }
+
+    /**
+     * Splits the file into byte ranges of roughly equal size, each starting at the beginning of a line.
+     *
+     * @param path csv file to split
+     * @param rangeCount maximum number of ranges
+     *
+     * @return consecutive ranges covering the whole file, fewer than rangeCount if the file has fewer lines.
+     */
+    public List<ByteRange> splitIntoLineAlignedRanges(Path path, int rangeCount) throws IOException {
+        return splitIntoLineAlignedRanges(path, 0, Long.MAX_VALUE, rangeCount);
+    }
+
+    /**
+     * Splits a byte range of the file into ranges of roughly equal size, each starting at the beginning of a line.
+     *
+     * @param path csv file to split
+     * @param start offset of the first byte to split, has to be the beginning of a line
+     * @param end offset after the last byte to split, the end of the file if it is beyond it
+     * @param rangeCount maximum number of ranges
+     *
+     * @return consecutive ranges covering the given range, fewer than rangeCount if it has fewer lines.
+     */
+    public List<ByteRange> splitIntoLineAlignedRanges(Path path, long start, long end, int rangeCount)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.min(end, channel.size());
+            long targetLength = Math.max(1, (size - start + rangeCount - 1) / rangeCount);
+            List<ByteRange> ranges = new ArrayList<>(rangeCount);
+            long rangeStart = start;
+            while (rangeStart < size) {
+                long rangeEnd = rangeStart + targetLength >= size
+                        ? size
+                        : nextLineStart(channel, rangeStart + targetLength, size);
+                ranges.add(new ByteRange(rangeStart, rangeEnd));
+                rangeStart = rangeEnd;
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Finds the end of the last line terminated by a line feed.
+     *
+     * @param path csv file to search
+     *
+     * @return offset after the last line feed of the file, 0 if it has none.
+     */
+    public long endOfLastCompleteLine(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long scanEnd = channel.size();
+            while (scanEnd > 0) {
+                long scanStart = Math.max(0, scanEnd - SCAN_BUFFER_SIZE);
+                buffer.clear().limit((int) (scanEnd - scanStart));
+                while (buffer.hasRemaining() && channel.read(buffer, scanStart + buffer.position()) > 0) {
+                    // reading until the buffer is full
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == LINE_FEED) {
+                        return scanStart + i + 1;
+                    }
+                }
+                scanEnd = scanStart;
+            }
+            return 0;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        // a line starts at position if the previous byte is the line terminator
+        long scanPosition = position - 1;
+        while (scanPosition < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scanPosition);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == LINE_FEED) {
+                    return scanPosition + i + 1;
+                }
+            }
+            scanPosition += read;
+        }
+        return size;
+    }
+
+    private long forEachRow(FileChannel channel, long start, long end, Consumer<CsvRow> rowConsumer)
+            throws IOException {
+        CsvRow row = new CsvRow();
+        long rowNumber = 0;
+        long windowStart = start;
+        while (windowStart < end) {
+            int windowLength = (int) Math.min(windowSize, end - windowStart);
+            boolean lastWindow = windowStart + windowLength == end;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            int lineStart = windowStart == 0 ? skipByteOrderMark(window) : 0;
+            for (int i = lineStart; i < windowLength; i++) {
+                if (window.get(i) == LINE_FEED) {
+                    row.reset(window, lineStart, trimCarriageReturn(window, lineStart, i), ++rowNumber);
+                    rowConsumer.accept(row);
+                    lineStart = i + 1;
+                }
+            }
+            if (lastWindow) {
+                // last line without line terminator
+                if (lineStart < windowLength) {
+                    row.reset(window, lineStart, trimCarriageReturn(window, lineStart, windowLength), ++rowNumber);
+                    rowConsumer.accept(row);
+                }
+                break;
+            }
+            if (lineStart == 0) {
+                throw new IOException(String.format("Row at offset %d is longer than %d bytes.", windowStart, windowSize));
+            }
+            windowStart += lineStart;
+        }
+        return rowNumber;
+    }
+
+    private static int skipByteOrderMark(MappedByteBuffer window) {
+        if (window.limit() >= 3 && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB
+                && window.get(2) == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int trimCarriageReturn(MappedByteBuffer window, int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == CARRIAGE_RETURN) {
+            return lineEnd - 1;
+        }
+        return lineEnd;
+    }
+}
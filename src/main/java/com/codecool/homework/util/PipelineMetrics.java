@@ -0,0 +1,158 @@
+package com.codecool.homework.util;
+
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.model.StageMetrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the stages of one run: wall time, rows, bytes, heap allocation and rejects.
+ * Every finished stage is also committed as a JFR event, the whole run can be written as a JSON summary.
+ */
+public class PipelineMetrics {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    // stages of the staged pipeline finish on different threads
+    private final List<StageMetrics> stages = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Returns the bytes allocated by the current thread so far, for measuring work done on other threads.
+     *
+     * @return allocated bytes, -1 if the JVM does not measure it.
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Starts measuring a stage on the current thread.
+     *
+     * @param name name of the stage in the log and the summary
+     *
+     * @return the running stage, finish it on the same thread.
+     */
+    public Stage start(String name) {
+        return new Stage(name);
+    }
+
+    public List<StageMetrics> getStages() {
+        return List.copyOf(stages);
+    }
+
+    /**
+     * Writes the finished stages as JSON.
+     *
+     * @param file JSON file to write, overwritten if exists
+     */
+    public void writeSummary(Path file) throws IOException {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"startTime\": \"").append(startTime).append("\",\n");
+        json.append("  \"wallTimeMillis\": ").append(toMillis(System.nanoTime() - startNanos)).append(",\n");
+        json.append("  \"stages\": [");
+        List<StageMetrics> stages = getStages();
+        for (int i = 0; i < stages.size(); i++) {
+            StageMetrics stage = stages.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(Json.escape(stage.name())).append('"')
+                    .append(", \"wallTimeMillis\": ").append(toMillis(stage.wallNanos()))
+                    .append(", \"rows\": ").append(stage.rows())
+                    .append(", \"rowsPerSecond\": ").append(Math.round(stage.getRowsPerSecond()))
+                    .append(", \"bytes\": ").append(stage.bytes())
+                    .append(", \"allocatedBytes\": ").append(stage.allocatedBytes())
+                    .append(", \"rejects\": {");
+            String separator = "";
+            for (Map.Entry<RejectReason, Long> reject : stage.rejects().entrySet()) {
+                json.append(separator).append('"').append(reject.getKey().name()).append("\": ")
+                        .append(reject.getValue());
+                separator = ", ";
+            }
+            json.append("}}");
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+
+    private static String toMillis(long nanos) {
+        // JSON numbers always use a decimal point
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * A running stage. Work done on other threads is added to it with addAllocatedBytes.
+     */
+    public class Stage {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocatedBytes = currentThreadAllocatedBytes();
+        private final AtomicLong otherThreadsAllocatedBytes = new AtomicLong();
+        private final PipelineStageEvent event = new PipelineStageEvent();
+
+        private Stage(String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        /**
+         * Adds the allocation of work done for this stage on another thread.
+         */
+        public void addAllocatedBytes(long allocatedBytes) {
+            otherThreadsAllocatedBytes.addAndGet(allocatedBytes);
+        }
+
+        public StageMetrics finish(long rows) {
+            return finish(rows, 0, Map.of());
+        }
+
+        /**
+         * Stops measuring the stage and records it in the run.
+         *
+         * @param rows number of rows processed by the stage
+         * @param bytes number of bytes read or written by the stage
+         * @param rejects number of rejected rows per reason
+         *
+         * @return measurements of the stage.
+         */
+        public StageMetrics finish(long rows, long bytes, Map<RejectReason, Long> rejects) {
+            long wallNanos = System.nanoTime() - startNanos;
+            long allocatedBytes = startAllocatedBytes < 0
+                    ? -1
+                    : currentThreadAllocatedBytes() - startAllocatedBytes + otherThreadsAllocatedBytes.get();
+            // EnumMap keeps the reasons in declaration order in the summary
+            Map<RejectReason, Long> rejectCounts = rejects.isEmpty()
+                    ? Map.of()
+                    : Collections.unmodifiableMap(new EnumMap<>(rejects));
+            StageMetrics stage = new StageMetrics(name, wallNanos, rows, bytes, allocatedBytes, rejectCounts);
+            stages.add(stage);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = name;
+                event.rows = rows;
+                event.bytes = bytes;
+                event.allocatedBytes = allocatedBytes;
+                event.rejectedRows = stage.getRejectedCount();
+                event.commit();
+            }
+            return stage;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.codecool.homework.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of one pipeline stage, so the stages of a recorded run can be lined up with GC and other JVM events.
+ * Costs nothing beyond the object when no recording is running.
+ */
+@Name("com.codecool.homework.PipelineStage")
+@Label("Pipeline Stage")
+@Category("Homework")
+@Description("One stage of processing the customer and payments files")
+@StackTrace(false)
+class PipelineStageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Rejected Rows")
+    long rejectedRows;
+}
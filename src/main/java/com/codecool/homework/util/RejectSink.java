@@ -0,0 +1,212 @@
+package com.codecool.homework.util;
+
+import com.codecool.homework.model.RejectReason;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the rejected rows of the input files off the validating threads.
+ * Rejects go into a bounded ring buffer drained by a background writer, which writes them in batches
+ * to a machine-readable csv (source file;row number;reason code;raw row) and to the human-readable log.
+ * The log can be rate limited per reason, the csv always gets every reject.
+ */
+public class RejectSink implements AutoCloseable {
+    private static final int BATCH_SIZE = 4096;
+    // marks the end of the rejects for the writer thread
+    private static final Reject END_OF_REJECTS = new Reject(null, 0, null, null);
+
+    private final BlockingQueue<Reject> buffer;
+    private final Logger logger;
+    // negative means no limit
+    private final long logLimitPerReason;
+    private final long[] logCountsPerReason = new long[RejectReason.values().length];
+    private final BufferedWriter writer;
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private volatile IOException writeFailure;
+    private boolean closed;
+
+    /**
+     * Opens the rejects file and starts the background writer.
+     *
+     * @param rejectsFile csv file to write the rejects to, overwritten if exists
+     * @param capacity maximum number of rejects waiting to be written, rejecting blocks if it is reached
+     * @param logLimitPerReason maximum number of rejects logged per reason, negative means no limit
+     * @param logger Logger for the human-readable log of the rejects
+     */
+    public RejectSink(Path rejectsFile, int capacity, long logLimitPerReason, Logger logger) throws IOException {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.logLimitPerReason = logLimitPerReason;
+        this.logger = logger;
+        this.writer = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8);
+        this.writerThread = new Thread(this::drain, "reject-sink-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        // rejects are flushed even if the application exits without closing the sink
+        this.shutdownHook = new Thread(this::closeQuietly, "reject-sink-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Records a rejected row. Blocks while the buffer is full, also if the thread is interrupted,
+     * whose interrupt status is kept, so no reject counted by the caller is missing from the rejects file.
+     *
+     * @param source name of the input file
+     * @param rowNumber 1 based number of the row in the input file
+     * @param reason reason of rejecting the row
+     * @param rawRow the row as it was read
+     */
+    public void reject(String source, long rowNumber, RejectReason reason, String rawRow) {
+        putUninterruptibly(new Reject(source, rowNumber, reason, rawRow));
+    }
+
+    /**
+     * Writes out the buffered rejects and closes the rejects file.
+     *
+     * @throws IOException if writing any of the rejects failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            putUninterruptibly(END_OF_REJECTS);
+            // the writer is only closed once the writer thread wrote every reject and ended
+            joinWriterThreadUninterruptibly();
+        } finally {
+            writer.close();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException alreadyShuttingDown) {
+                // called from the shutdown hook itself
+            }
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+
+    private void putUninterruptibly(Reject reject) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    buffer.put(reject);
+                    return;
+                } catch (InterruptedException interruptedException) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void joinWriterThreadUninterruptibly() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    writerThread.join();
+                    return;
+                } catch (InterruptedException interruptedException) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ioException) {
+            logger.log(Level.SEVERE, "Could not write rejects file.", ioException);
+        }
+    }
+
+    private void drain() {
+        List<Reject> batch = new ArrayList<>(BATCH_SIZE);
+        boolean ended = false;
+        while (!ended) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException interruptedException) {
+                // only the end marker stops the writer, so no reject is lost
+                continue;
+            }
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+            for (Reject reject : batch) {
+                if (reject == END_OF_REJECTS) {
+                    ended = true;
+                    break;
+                }
+                write(reject);
+                log(reject);
+            }
+            flush();
+            batch.clear();
+        }
+    }
+
+    private void write(Reject reject) {
+        // after a failure the buffer is still drained, so the validating threads are not blocked
+        if (writeFailure != null) {
+            return;
+        }
+        try {
+            writer.write(reject.source());
+            writer.write(';');
+            writer.write(Long.toString(reject.rowNumber()));
+            writer.write(';');
+            writer.write(reject.reason().name());
+            writer.write(';');
+            writer.write(reject.rawRow());
+            writer.newLine();
+        } catch (IOException ioException) {
+            writeFailure = ioException;
+        }
+    }
+
+    private void flush() {
+        if (writeFailure != null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException ioException) {
+            writeFailure = ioException;
+        }
+    }
+
+    private void log(Reject reject) {
+        RejectReason reason = reject.reason();
+        long count = ++logCountsPerReason[reason.ordinal()];
+        if (logLimitPerReason < 0 || count <= logLimitPerReason) {
+            logger.log(reason.getLevel(), reason.getMessage() + ": " + reject.rawRow());
+        } else if (count == logLimitPerReason + 1) {
+            logger.info(String.format("Log limit reached for reject reason %s, further rejects are only written "
+                    + "to the rejects file.", reason.name()));
+        }
+    }
+
+    private record Reject(String source, long rowNumber, RejectReason reason, String rawRow) {
+    }
+}
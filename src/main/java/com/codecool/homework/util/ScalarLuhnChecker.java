@@ -0,0 +1,31 @@
+package com.codecool.homework.util;
+
+import java.util.BitSet;
+
+/**
+ * Luhn check one digit at a time, used when the Vector API is not available.
+ */
+public class ScalarLuhnChecker implements LuhnChecker {
+
+    @Override
+    public void check(byte[] digits, int count, BitSet failures) {
+        for (int number = 0; number < count; number++) {
+            int sum = 0;
+            int end = (number + 1) * CardNumberBatch.WIDTH;
+            // every second digit from the right is doubled, starting with the one left of the check digit
+            for (int i = end - 1, position = 0; i >= number * CardNumberBatch.WIDTH; i--, position++) {
+                int digit = digits[i];
+                if ((position & 1) == 1) {
+                    digit *= 2;
+                    if (digit > 9) {
+                        digit -= 9;
+                    }
+                }
+                sum += digit;
+            }
+            if (sum % 10 != 0) {
+                failures.set(number);
+            }
+        }
+    }
+}
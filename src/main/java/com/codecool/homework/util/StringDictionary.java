@@ -0,0 +1,145 @@
+package com.codecool.homework.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary encoding of strings: every distinct value gets an int id, in the order the values were added.
+ * The values are stored as UTF-8 bytes in one growing array, and csv fields are looked up without decoding them,
+ * so encoding a repeated value does not allocate.
+ * Not thread-safe, one dictionary must only be used by one thread at a time.
+ */
+public class StringDictionary {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EMPTY = -1;
+
+    // bytes of the value with id i are bytes[offsets[i]] to bytes[offsets[i + 1]]
+    private byte[] bytes = new byte[INITIAL_CAPACITY * 16];
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+    // hash table of the ids, at most half full
+    private int[] table = newTable(INITIAL_CAPACITY * 2);
+    // copy of the field being looked up, ByteBuffers of mapped files have no accessible array
+    private byte[] fieldBytes = new byte[64];
+
+    /**
+     * @return id of the value, added to the dictionary if it is new.
+     */
+    public int idOf(String value) {
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        return idOf(valueBytes, 0, valueBytes.length);
+    }
+
+    /**
+     * Looks up a field of a csv row the same way as idOf(String), without decoding the field.
+     *
+     * @return id of the field's value, added to the dictionary if it is new.
+     */
+    public int idOf(CsvRow row, int field) {
+        int length = row.getFieldLength(field);
+        if (length > fieldBytes.length) {
+            fieldBytes = new byte[Math.max(length, fieldBytes.length * 2)];
+        }
+        row.getBuffer().get(row.getFieldOffset(field), fieldBytes, 0, length);
+        return idOf(fieldBytes, 0, length);
+    }
+
+    /**
+     * Looks up a value of another dictionary, e.g. when merging the data encoded with it.
+     *
+     * @return id of the value in this dictionary, added if it is new.
+     */
+    public int idOf(StringDictionary other, int otherId) {
+        return idOf(other.bytes, other.offsets[otherId], other.offsets[otherId + 1] - other.offsets[otherId]);
+    }
+
+    /**
+     * @return the value of an id.
+     */
+    public String get(int id) {
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a value given as UTF-8 bytes, e.g. read back from a file.
+     *
+     * @param source array holding the value
+     * @param offset index of the first byte of the value
+     * @param length length of the value in bytes
+     *
+     * @return id of the value, added to the dictionary if it is new.
+     */
+    public int idOf(byte[] source, int offset, int length) {
+        int hash = hash(source, offset, length);
+        int mask = table.length - 1;
+        int index = hash & mask;
+        while (table[index] != EMPTY) {
+            int id = table[index];
+            if (hashes[id] == hash && equals(id, source, offset, length)) {
+                return id;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size == hashes.length) {
+            grow();
+            return idOf(source, offset, length);
+        }
+        int end = offsets[size] + length;
+        if (end > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(end, bytes.length * 2));
+        }
+        System.arraycopy(source, offset, bytes, offsets[size], length);
+        offsets[size + 1] = end;
+        hashes[size] = hash;
+        table[index] = size;
+        return size++;
+    }
+
+    private boolean equals(int id, byte[] source, int offset, int length) {
+        int start = offsets[id];
+        return offsets[id + 1] - start == length
+                && Arrays.equals(bytes, start, start + length, source, offset, offset + length);
+    }
+
+    /**
+     * Doubles the number of ids, the table stays at most half full.
+     */
+    private void grow() {
+        int capacity = hashes.length * 2;
+        offsets = Arrays.copyOf(offsets, capacity + 1);
+        hashes = Arrays.copyOf(hashes, capacity);
+        table = newTable(capacity * 2);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int index = hashes[id] & mask;
+            while (table[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            table[index] = id;
+        }
+    }
+
+    private static int[] newTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(byte[] source, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + source[i];
+        }
+        // numbers differing in the last digits are spread over the table
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,53 @@
+package com.codecool.homework.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the first K elements by a comparator without sorting all of them.
+ * Keeps a heap of at most K elements with the worst kept element on top, so offering n elements costs O(n log K).
+ *
+ * @param <T> type of the ranked elements
+ */
+public class TopKSelector<T> {
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param k maximum number of elements to keep, not negative
+     * @param order ranking of the elements, the first elements by this order are kept;
+     *              it should be a total order for deterministic results on ties
+     *
+     * @throws IllegalArgumentException if k is negative
+     */
+    public TopKSelector(int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K must not be negative: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        // not sized to K, the heap only grows with the offered elements, so a K above their number costs nothing
+        this.heap = new PriorityQueue<>(order.reversed());
+    }
+
+    public void offer(T element) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (k > 0 && order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * @return the kept elements in ranking order.
+     */
+    public List<T> getResult() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package com.codecool.homework.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.BitSet;
+
+/**
+ * Luhn check of all digits of a card number at once with the incubating Vector API.
+ * Only created by LuhnChecker.create when the jdk.incubator.vector module is present.
+ */
+class VectorLuhnChecker implements LuhnChecker {
+    // at most one card number per vector, so the lanes of a vector can be summed up as one number
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() > CardNumberBatch.WIDTH
+            ? ByteVector.SPECIES_256
+            : ByteVector.SPECIES_PREFERRED;
+    // the check digit is at the last, odd index of a number, every second digit left of it is doubled
+    private static final VectorMask<Byte> DOUBLED_DIGITS = VectorMask.fromLong(SPECIES, 0x5555_5555_5555_5555L);
+
+    @Override
+    public void check(byte[] digits, int count, BitSet failures) {
+        for (int number = 0; number < count; number++) {
+            ByteVector sums = ByteVector.zero(SPECIES);
+            int end = (number + 1) * CardNumberBatch.WIDTH;
+            for (int offset = number * CardNumberBatch.WIDTH; offset < end; offset += SPECIES.length()) {
+                ByteVector digitVector = ByteVector.fromArray(SPECIES, digits, offset);
+                digitVector = digitVector.add(digitVector, DOUBLED_DIGITS);
+                digitVector = digitVector.sub((byte) 9, digitVector.compare(VectorOperators.GT, (byte) 9));
+                sums = sums.add(digitVector);
+            }
+            // at most 19 digits of at most 9 fit into the unsigned range of a byte
+            int sum = sums.reduceLanes(VectorOperators.ADD) & 0xFF;
+            if (sum % 10 != 0) {
+                failures.set(number);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.codecool.homework.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CustomerIndexTests {
+
+	@Test
+	void acceptsOnlyAsciiDigitsInIds() {
+		assertEquals(101, CustomerIndex.keyOf("WS01", "A01"));
+		// Arabic-Indic digits, rejected by the validation of the csv rows as well
+		assertEquals(CustomerIndex.INVALID_KEY, CustomerIndex.keyOf("WS٠١", "A01"));
+		assertEquals(CustomerIndex.INVALID_KEY, CustomerIndex.keyOf("WS01", "A٠١"));
+		assertEquals(CustomerIndex.INVALID_KEY, CustomerIndex.webshopNumberOf("WS٠١"));
+	}
+}
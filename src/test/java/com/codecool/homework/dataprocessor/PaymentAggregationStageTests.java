@@ -0,0 +1,26 @@
+package com.codecool.homework.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentAggregationStageTests {
+	@Test
+	void aggregatesAllSubmittedChunksThroughABoundedQueue() throws IOException {
+		ReportBuilder reportBuilder = new ReportBuilder();
+		PaymentAggregator inMemory = reportBuilder.aggregatePayments(PaymentFixture.payments(0, 200 * 50));
+		PaymentAggregator staged;
+		try (PaymentAggregationStage aggregation = new PaymentAggregationStage(reportBuilder,
+				new PaymentAggregator(), 1)) {
+			for (int chunk = 0; chunk < 200; chunk++) {
+				aggregation.submit(PaymentFixture.payments(chunk * 50, (chunk + 1) * 50));
+			}
+			staged = aggregation.finish();
+			assertEquals(200 * 50, aggregation.getPaymentCount());
+		}
+
+		PaymentFixture.assertSameReports(inMemory, staged);
+	}
+}
@@ -0,0 +1,183 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.util.CsvFileHandler;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import com.codecool.homework.util.PipelineMetrics;
+import com.codecool.homework.util.RejectSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentCheckpointTests {
+	private static final Logger LOGGER = Logger.getLogger(PaymentCheckpointTests.class.getName());
+	private static final Path SAMPLE_INPUT = Path.of("src/main/resources/input");
+
+	@TempDir
+	Path tempDir;
+	private Path stateFile;
+	private File customerFile;
+	private File paymentsFile;
+
+	@BeforeEach
+	void writeInputs() throws IOException {
+		stateFile = tempDir.resolve("payments.checkpoint");
+		customerFile = Files.writeString(tempDir.resolve("customer.csv"), """
+				WS01;A01;Kovács János;Bp. 1192 Kosárfonó u. 18
+				WS01;A02;Kiss István;Bp. 1149 Vizafogó u. 11
+				""", StandardCharsets.UTF_8).toFile();
+		paymentsFile = Files.writeString(tempDir.resolve("payments.csv"), """
+				WS01;A01;card;2199;;4908366099900433;2021.01.01
+				WS01;A02;transfer;987;1179400820544448;;2021.01.10
+				""", StandardCharsets.UTF_8).toFile();
+	}
+
+	@Test
+	void resumesSavedCheckpoint() throws IOException {
+		PaymentCheckpoint checkpoint = resume(7);
+		assertFalse(checkpoint.isResumed());
+		assertEquals(0, checkpoint.getPaymentsOffset());
+		checkpoint.getAggregates().add(CustomerIndex.keyOf("WS01", "A01"), "WS01", true, 2199, 18628);
+		checkpoint.advance(paymentsFile, paymentsFile.length(), 2);
+		checkpoint.save(stateFile);
+
+		PaymentCheckpoint resumed = resume(7);
+		assertTrue(resumed.isResumed());
+		assertEquals(paymentsFile.length(), resumed.getPaymentsOffset());
+		assertEquals(2, resumed.getPaymentsRowCount());
+		assertEquals(2199, resumed.getAggregates().getCustomerSum(CustomerIndex.keyOf("WS01", "A01")).longValue());
+
+		// an appended tail keeps the checkpoint
+		Files.writeString(paymentsFile.toPath(), "WS01;A01;card;100;;4908366099900433;2021.01.02\n",
+				StandardOpenOption.APPEND);
+		assertTrue(resume(7).isResumed());
+	}
+
+	@Test
+	void rebuildsWhenCustomerFileChanged() throws IOException {
+		saveCheckpointAtEndOfPayments();
+		Files.writeString(customerFile.toPath(), "WS02;A01;Nagy Ferenc;Bp.\n", StandardOpenOption.APPEND);
+
+		assertRebuilt(resume(7));
+	}
+
+	@Test
+	void rebuildsWhenProcessedPrefixEdited() throws IOException {
+		saveCheckpointAtEndOfPayments();
+		// same length, only the amount of the first payment differs
+		try (RandomAccessFile file = new RandomAccessFile(paymentsFile, "rw")) {
+			file.seek("WS01;A01;card;".length());
+			file.write('3');
+		}
+
+		assertRebuilt(resume(7));
+	}
+
+	@Test
+	void rebuildsWhenPaymentsFileTruncated() throws IOException {
+		saveCheckpointAtEndOfPayments();
+		try (RandomAccessFile file = new RandomAccessFile(paymentsFile, "rw")) {
+			file.setLength(file.length() - 1);
+		}
+
+		assertRebuilt(resume(7));
+	}
+
+	@Test
+	void rebuildsWhenAmountPrecisionChanged() throws IOException {
+		saveCheckpointAtEndOfPayments();
+
+		assertRebuilt(resume(8));
+	}
+
+	@Test
+	void rebuildsFromCorruptOrForeignStateFile() throws IOException {
+		saveCheckpointAtEndOfPayments();
+		byte[] saved = Files.readAllBytes(stateFile);
+		Files.write(stateFile, Arrays.copyOf(saved, saved.length / 2));
+		assertRebuilt(resume(7));
+
+		Files.writeString(stateFile, "not a checkpoint", StandardCharsets.UTF_8);
+		assertRebuilt(resume(7));
+
+		Files.write(stateFile, new byte[0]);
+		assertRebuilt(resume(7));
+	}
+
+	@Test
+	void appendedTailGivesSameReportsAsFullRun() throws Exception {
+		List<String> sampleLines = Files.readAllLines(SAMPLE_INPUT.resolve("payments.csv"), StandardCharsets.UTF_8);
+		customerFile = SAMPLE_INPUT.resolve("customer.csv").toFile();
+		int processedLines = sampleLines.size() / 2;
+		Path payments = tempDir.resolve("sample-payments.csv");
+		Files.write(payments, sampleLines.subList(0, processedLines), StandardCharsets.UTF_8);
+		paymentsFile = payments.toFile();
+
+		Path firstRun = Files.createDirectory(tempDir.resolve("first"));
+		runPipeline(firstRun, true);
+		Files.write(payments, sampleLines.subList(processedLines, sampleLines.size()), StandardCharsets.UTF_8,
+				StandardOpenOption.APPEND);
+		// the second run continues from the checkpoint of the first one instead of rebuilding
+		assertTrue(resume(PaymentAggregator.DEFAULT_AMOUNT_PRECISION_BITS).isResumed());
+		Path incrementalRun = Files.createDirectory(tempDir.resolve("incremental"));
+		runPipeline(incrementalRun, true);
+		Path fullRun = Files.createDirectory(tempDir.resolve("full"));
+		runPipeline(fullRun, false);
+
+		for (String report : List.of("report01.csv", "report02.csv", "report03.csv", "report04.csv", "top.csv")) {
+			assertEquals(readSorted(fullRun.resolve(report)), readSorted(incrementalRun.resolve(report)), report);
+		}
+	}
+
+	private PaymentCheckpoint resume(int amountPrecisionBits) throws IOException {
+		return PaymentCheckpoint.resume(stateFile, customerFile, paymentsFile, amountPrecisionBits, LOGGER);
+	}
+
+	private void saveCheckpointAtEndOfPayments() throws IOException {
+		PaymentCheckpoint checkpoint = resume(7);
+		checkpoint.advance(paymentsFile, paymentsFile.length(), 2);
+		checkpoint.save(stateFile);
+		assertTrue(resume(7).isResumed());
+	}
+
+	private static void assertRebuilt(PaymentCheckpoint checkpoint) {
+		assertFalse(checkpoint.isResumed());
+		assertEquals(0, checkpoint.getPaymentsOffset());
+		assertEquals(0, checkpoint.getPaymentsRowCount());
+	}
+
+	private void runPipeline(Path outputDirectory, boolean incremental) throws Exception {
+		HomeworkProperties properties = new HomeworkProperties();
+		properties.getIncremental().setStateFile(stateFile.toString());
+		PaymentPipeline pipeline = new PaymentPipeline(new CsvFileHandler(), new DateValidatorForNotIsoFormat(),
+				properties, new ReportBuilder(), new ValidatedDataCache(properties), new PaymentQueryServer(properties));
+		PipelineMetrics metrics = new PipelineMetrics();
+		CustomerIndex customers;
+		PaymentPipeline.ValidatedPayments validatedPayments;
+		try (RejectSink rejects = pipeline.openRejectSink(outputDirectory, LOGGER)) {
+			customers = pipeline.validateCustomerFile(rejects, new RejectCounters(), customerFile, metrics);
+			validatedPayments = pipeline.validatePaymentsFile(rejects, new RejectCounters(), customerFile,
+					paymentsFile, customers, metrics, incremental);
+		}
+		pipeline.createReports(validatedPayments, customers, metrics, outputDirectory);
+	}
+
+	private static List<String> readSorted(Path report) throws IOException {
+		return Files.readAllLines(report, StandardCharsets.UTF_8).stream().sorted().toList();
+	}
+}
@@ -0,0 +1,73 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import com.codecool.homework.util.MappedCsvReader;
+import com.codecool.homework.util.ScalarLuhnChecker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentChunkValidatorTests {
+	private static final String VALID_CARD = "WS01;A01;card;100;;4908366099900433;2021.01.01";
+	private static final String FAILING_CARD = "WS01;A01;card;200;;4908366099900434;2021.01.01";
+	private static final String INVALID_DATE = "WS01;A01;card;300;;4908366099900433;2021.02.29";
+	private static final String TRANSFER = "WS01;A01;transfer;400;1179400820544448;;2021.01.10";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void rejectsFailingCardNumbersInRowOrderWithoutCountingThemValid() throws IOException {
+		// more rows than a batch holds, so a batch is checked while rows are read as well
+		List<String> lines = new ArrayList<>();
+		List<String> expectedRejects = new ArrayList<>();
+		List<Long> expectedAmounts = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			for (String line : List.of(VALID_CARD, FAILING_CARD, INVALID_DATE, TRANSFER)) {
+				lines.add(line);
+				if (line.equals(FAILING_CARD) || line.equals(INVALID_DATE)) {
+					expectedRejects.add(lines.size() + ";" + line);
+				} else {
+					expectedAmounts.add(line.equals(VALID_CARD) ? 100L : 400L);
+				}
+			}
+		}
+		Path file = Files.write(tempDir.resolve("payments.csv"), lines, StandardCharsets.UTF_8);
+		CustomerIndex customers = new CustomerIndex();
+		customers.add(CustomerIndex.keyOf("WS01", "A01"), new Customer("WS01", "A01", "Kovács János", "Bp."));
+		RejectCounters counters = new RejectCounters();
+		PaymentChunkValidator validator = new PaymentChunkValidator(
+				new PaymentValidator(customers, new DateValidatorForNotIsoFormat(), counters), counters,
+				new ScalarLuhnChecker());
+
+		new MappedCsvReader().forEachRow(file, validator);
+		validator.finish();
+
+		List<String> rejects = new ArrayList<>();
+		for (PaymentChunkValidator.Reject reject : validator.getRejects()) {
+			rejects.add(reject.rowNumber() + ";" + reject.rawRow());
+		}
+		assertEquals(expectedRejects, rejects);
+		assertEquals(RejectReason.PAYMENT_CARD_CHECKSUM, validator.getRejects().get(0).reason());
+		assertEquals(RejectReason.PAYMENT_DATE, validator.getRejects().get(1).reason());
+		PaymentTable payments = validator.getPayments();
+		List<Long> amounts = new ArrayList<>();
+		for (int row = 0; row < payments.size(); row++) {
+			amounts.add(payments.getAmountPayed(row));
+		}
+		assertEquals(expectedAmounts, amounts);
+		assertEquals(2000, counters.getCount(RejectReason.VALID));
+		assertEquals(1000, counters.getCount(RejectReason.PAYMENT_CARD_CHECKSUM));
+		assertEquals(1000, counters.getCount(RejectReason.PAYMENT_DATE));
+	}
+}
@@ -0,0 +1,80 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.CustomerPaymentSum;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Generated payments and a comparison of the reports created from their sums, shared by the tests of the ways
+ * of aggregating the payments, which all have to give the same reports as aggregating them in memory.
+ */
+final class PaymentFixture {
+	private static final int WEBSHOP_COUNT = 7;
+	private static final int CUSTOMER_COUNT = 31;
+
+	private PaymentFixture() {
+	}
+
+	/**
+	 * Generates the payments from one index to another of a fixed sequence, so consecutive ranges add up
+	 * to the payments of the whole range. Amounts near Long.MAX_VALUE overflow the sums of long.
+	 *
+	 * @return table of the payments.
+	 */
+	static PaymentTable payments(int from, int to) {
+		PaymentTable payments = new PaymentTable();
+		for (int i = from; i < to; i++) {
+			String webshopId = webshopId(i % WEBSHOP_COUNT);
+			String customerId = customerId(i % CUSTOMER_COUNT);
+			long amount = i % 13 == 0 ? Long.MAX_VALUE - i : i * 100L + i % 97;
+			payments.add(CustomerIndex.keyOf(webshopId, customerId), webshopId, i % 3 != 0, amount, 18_000 + i % 90,
+					payments.encodeNumber(""), payments.encodeNumber(""));
+		}
+		return payments;
+	}
+
+	/**
+	 * Asserts that every report created from the sums is the same, including the daily sums and the histograms.
+	 *
+	 * @param expected sums of the payments aggregated in memory
+	 * @param actual sums of the payments aggregated another way
+	 */
+	static void assertSameReports(PaymentAggregator expected, PaymentAggregator actual) {
+		ReportBuilder reportBuilder = new ReportBuilder();
+		List<Customer> customers = new ArrayList<>();
+		for (int webshop = 0; webshop < WEBSHOP_COUNT; webshop++) {
+			for (int customer = 0; customer < CUSTOMER_COUNT; customer++) {
+				customers.add(new Customer(webshopId(webshop), customerId(customer), "Customer " + customer, "Bp."));
+			}
+		}
+		List<CustomerPaymentSum> expectedSums = reportBuilder.collectCustomerPaymentSums(customers, expected);
+		List<CustomerPaymentSum> actualSums = reportBuilder.collectCustomerPaymentSums(customers, actual);
+
+		assertEquals(reportBuilder.createReportOfCustomersBySumPayment(expectedSums),
+				reportBuilder.createReportOfCustomersBySumPayment(actualSums));
+		assertEquals(reportBuilder.createReportOfTopCustomersByPaymentSum(expectedSums, 5),
+				reportBuilder.createReportOfTopCustomersByPaymentSum(actualSums, 5));
+		assertEquals(reportBuilder.createReportOfTopCustomersPerWebshopByPaymentSum(expectedSums, 3),
+				reportBuilder.createReportOfTopCustomersPerWebshopByPaymentSum(actualSums, 3));
+		// every generated webshop has payments, so the comparisons are not of empty reports
+		assertEquals(WEBSHOP_COUNT, reportBuilder.createReportOfWebshopsByPaymentSums(expected).size());
+		assertEquals(reportBuilder.createReportOfWebshopsByPaymentSums(expected),
+				reportBuilder.createReportOfWebshopsByPaymentSums(actual));
+		assertEquals(reportBuilder.createReportOfWebshopsByPaymentDate(expected),
+				reportBuilder.createReportOfWebshopsByPaymentDate(actual));
+		assertEquals(reportBuilder.createReportOfWebshopAmountDistributions(expected),
+				reportBuilder.createReportOfWebshopAmountDistributions(actual));
+	}
+
+	private static String webshopId(int webshop) {
+		return String.format("WS%02d", webshop + 1);
+	}
+
+	private static String customerId(int customer) {
+		return String.format("A%02d", customer);
+	}
+}
@@ -0,0 +1,75 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.CustomerPaymentSum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentQueryServerTests {
+	private final HttpClient client = HttpClient.newHttpClient();
+	private PaymentQueryServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		HomeworkProperties properties = new HomeworkProperties();
+		properties.getQuery().setPort(0);
+		server = new PaymentQueryServer(properties);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.close();
+	}
+
+	@Test
+	void answersFromTheLastPublishedRun() throws IOException, InterruptedException {
+		assertEquals(503, get("/customers/WS01/A01").statusCode());
+
+		server.publish(index(1000, 500));
+		HttpResponse<String> customer = get("/customers/WS01/A01");
+		assertEquals(200, customer.statusCode());
+		assertEquals("{\"webshopId\": \"WS01\", \"customerId\": \"A01\", \"name\": \"Kovács Géza\", "
+				+ "\"address\": \"Bp. 1111 Kossuth u. 1\", \"sum\": 1000}", customer.body());
+		assertEquals("{\"webshopId\": \"WS01\", \"card\": 1000, \"transfer\": 500}", get("/webshops/WS01").body());
+		assertEquals("[{\"webshopId\": \"WS01\", \"customerId\": \"A01\", \"name\": \"Kovács Géza\", "
+				+ "\"address\": \"Bp. 1111 Kossuth u. 1\", \"sum\": 1000}]", get("/top?k=1").body());
+		assertEquals(404, get("/customers/WS01/A99").statusCode());
+		assertEquals(400, get("/top?k=-1").statusCode());
+
+		server.publish(index(2000, 3000));
+		assertEquals("[{\"webshopId\": \"WS01\", \"customerId\": \"A02\", \"name\": \"Hagyma Ödön\", "
+				+ "\"address\": \"Szeged 6720 Fő u. 2\", \"sum\": 3000}]", get("/top/WS01?k=1").body());
+		assertEquals("{\"webshopId\": \"WS01\", \"card\": 2000, \"transfer\": 3000}", get("/webshops/WS01").body());
+	}
+
+	private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+		URI uri = URI.create("http://localhost:" + server.getPort() + path);
+		return client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	/**
+	 * @return index of a run where A01 payed by card and A02 by transfer at WS01.
+	 */
+	private static PaymentQueryIndex index(long cardAmount, long transferAmount) {
+		Customer kovacs = new Customer("WS01", "A01", "Kovács Géza", "Bp. 1111 Kossuth u. 1");
+		Customer hagyma = new Customer("WS01", "A02", "Hagyma Ödön", "Szeged 6720 Fő u. 2");
+		PaymentAggregator aggregates = new PaymentAggregator();
+		aggregates.add(CustomerIndex.keyOf("WS01", "A01"), "WS01", true, cardAmount, 18645);
+		aggregates.add(CustomerIndex.keyOf("WS01", "A02"), "WS01", false, transferAmount, 18645);
+		List<CustomerPaymentSum> customerPaymentSums = new ReportBuilder().collectCustomerPaymentSums(
+				List.of(kovacs, hagyma), aggregates);
+		return new PaymentQueryIndex("payments.csv", 2, customerPaymentSums, aggregates);
+	}
+}
@@ -0,0 +1,51 @@
+package com.codecool.homework.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentSpillTests {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void spilledPartitionsAddUpToInMemorySums() throws IOException {
+		PaymentTable payments = PaymentFixture.payments(0, 5000);
+		PaymentAggregator inMemory = new ReportBuilder().aggregatePayments(payments);
+
+		PaymentAggregator spilled = new PaymentAggregator();
+		Path spillDirectory = tempDir.resolve("spill");
+		try (PaymentSpill spill = new PaymentSpill(spillDirectory, 4, 1024)) {
+			for (int row = 0; row < payments.size(); row++) {
+				spill.add(payments, row);
+			}
+			assertEquals(payments.size(), spill.size());
+			assertTrue(spill.getSpilledBytes() > 0);
+			for (int partition = 0; partition < spill.getPartitionCount(); partition++) {
+				PaymentAggregator partitionSums = new PaymentAggregator();
+				spill.aggregatePartition(partition, partitionSums);
+				spilled.addAll(partitionSums);
+			}
+		}
+
+		PaymentFixture.assertSameReports(inMemory, spilled);
+		try (Stream<Path> spillFiles = Files.list(spillDirectory)) {
+			assertEquals(0, spillFiles.count());
+		}
+	}
+
+	@Test
+	void rejectsLessThanOnePartition() {
+		Path spillDirectory = tempDir.resolve("spill");
+		assertThrows(IllegalArgumentException.class, () -> new PaymentSpill(spillDirectory, 0, 1024));
+		assertThrows(IllegalArgumentException.class, () -> new PaymentSpill(spillDirectory, -1, 1024));
+	}
+}
@@ -0,0 +1,46 @@
+package com.codecool.homework.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentTableTests {
+	@Test
+	void mergesChunksWithTheirOwnDictionariesAndRemovesRows() {
+		PaymentTable first = new PaymentTable();
+		first.add(CustomerIndex.keyOf("WS01", "A01"), "WS01", true, 1000, 18645, first.encodeNumber(""),
+				first.encodeNumber("5437588499034201"));
+		first.add(CustomerIndex.keyOf("WS01", "A02"), "WS01", true, 2000, 18646, first.encodeNumber(""),
+				first.encodeNumber("4908366099900433"));
+		PaymentTable second = new PaymentTable();
+		second.add(CustomerIndex.keyOf("WS02", "A04"), "WS02", false, 987, 18647,
+				second.encodeNumber("11111111222222223333333"), second.encodeNumber(""));
+		second.add(CustomerIndex.keyOf("WS01", "A01"), "WS01", true, 3000, 18648, second.encodeNumber(""),
+				second.encodeNumber("5437588499034201"));
+
+		PaymentTable merged = new PaymentTable(1);
+		merged.addAll(first);
+		merged.addAll(second);
+
+		assertEquals(4, merged.size());
+		// "" and the three distinct numbers
+		assertEquals(4, merged.getNumberCount());
+		assertEquals("WS02", merged.getWebshopId(2));
+		assertEquals("transfer", merged.getType(2));
+		assertEquals("11111111222222223333333", merged.getBankAccountNumber(2));
+		assertEquals(merged.getCardNumberId(0), merged.getCardNumberId(3));
+
+		BitSet removed = new BitSet();
+		removed.set(1);
+		removed.set(2);
+		merged.removeRows(removed);
+
+		assertEquals(2, merged.size());
+		assertEquals(1000, merged.getAmountPayed(0));
+		assertEquals(3000, merged.getAmountPayed(1));
+		assertEquals(18648, merged.getEpochDayOfPayment(1));
+		assertEquals("5437588499034201", merged.getCreditOrDebitCardNumber(1));
+	}
+}
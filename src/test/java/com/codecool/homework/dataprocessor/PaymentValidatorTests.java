@@ -0,0 +1,76 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import com.codecool.homework.util.DateValidatorForNotIsoFormat;
+import com.codecool.homework.util.MappedCsvReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentValidatorTests {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void returnsReasonOfFirstFailingRule() throws IOException {
+		CustomerIndex customers = new CustomerIndex();
+		customers.add(CustomerIndex.keyOf("WS01", "A01"), new Customer("WS01", "A01", "Kovács János", "Bp."));
+		RejectCounters counters = new RejectCounters();
+		PaymentValidator validator = new PaymentValidator(customers, new DateValidatorForNotIsoFormat(), counters);
+		Path file = tempDir.resolve("payments.csv");
+		Files.writeString(file, """
+				WS01;A01;card;2199;;4908366099900433;2021.01.01
+				WS01;A01;card;2199;;4908366099900433
+				WS1;A01;card;2199;;4908366099900433;2021.01.01
+				WS01;A01;cash;2199;;4908366099900433;2021.01.01
+				WS01;A01;card;21x9;;4908366099900433;2021.01.01
+				WS01;A01;card;99999999999999999999;;4908366099900433;2021.01.01
+				WS01;A01;card;0;;4908366099900433;2021.01.01
+				WS01;A01;transfer;987;1179400820544448;;2021.01.10
+				WS01;A01;transfer;987;1179;;2021.01.10
+				WS01;A01;card;2199;;477947047949679;2021.01.01
+				WS01;A01;card;2199;;4908366099900433;2021.02.29
+				WS01;A02;card;2199;;4908366099900433;2021.01.01
+				""", StandardCharsets.UTF_8);
+		List<RejectReason> reasons = new ArrayList<>();
+		new MappedCsvReader().forEachRow(file, row -> reasons.add(validator.validate(row)));
+
+		assertEquals(List.of(RejectReason.VALID, RejectReason.PAYMENT_FIELD_COUNT,
+				RejectReason.PAYMENT_WEBSHOP_ID_LENGTH, RejectReason.PAYMENT_TYPE, RejectReason.PAYMENT_AMOUNT_FORMAT,
+				RejectReason.PAYMENT_AMOUNT_FORMAT, RejectReason.PAYMENT_AMOUNT_ZERO, RejectReason.VALID,
+				RejectReason.PAYMENT_ACCOUNT_LENGTH, RejectReason.PAYMENT_AMEX_PREFIX, RejectReason.PAYMENT_DATE,
+				RejectReason.PAYMENT_CUSTOMER_NOT_FOUND), reasons);
+		// the valid card payment is only counted by the Luhn check of its batch
+		assertEquals(1, counters.getCount(RejectReason.VALID));
+		assertEquals(10, counters.getRejectedCount());
+	}
+
+	@Test
+	void ignoresTrailingEmptyFieldsLikeSplit() throws IOException {
+		CustomerIndex customers = new CustomerIndex();
+		customers.add(CustomerIndex.keyOf("WS01", "A01"), new Customer("WS01", "A01", "Kovács János", "Bp."));
+		PaymentValidator validator = new PaymentValidator(customers, new DateValidatorForNotIsoFormat(),
+				new RejectCounters());
+		Path file = tempDir.resolve("payments.csv");
+		Files.writeString(file, """
+				WS01;A01;card;2199;;4908366099900433;2021.01.01;
+				WS01;A01;card;2199;;4908366099900433;2021.01.01;;
+				WS01;A01;card;2199;;4908366099900433;;
+				WS01;A01;card;2199;;4908366099900433;2021.01.01;x
+				""", StandardCharsets.UTF_8);
+		List<RejectReason> reasons = new ArrayList<>();
+		new MappedCsvReader().forEachRow(file, row -> reasons.add(validator.validate(row)));
+
+		assertEquals(List.of(RejectReason.VALID, RejectReason.VALID, RejectReason.PAYMENT_FIELD_COUNT,
+				RejectReason.PAYMENT_FIELD_COUNT), reasons);
+	}
+}
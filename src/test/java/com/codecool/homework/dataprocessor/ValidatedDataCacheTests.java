@@ -0,0 +1,70 @@
+package com.codecool.homework.dataprocessor;
+
+import com.codecool.homework.config.HomeworkProperties;
+import com.codecool.homework.model.Customer;
+import com.codecool.homework.model.RejectReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ValidatedDataCacheTests {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void restoresStoredDataUntilInputChanges() throws IOException {
+		HomeworkProperties properties = new HomeworkProperties();
+		properties.getCache().setDirectory(tempDir.resolve("cache").toString());
+		ValidatedDataCache cache = new ValidatedDataCache(properties);
+		File customerFile = Files.writeString(tempDir.resolve("customer.csv"), "WS01;A01;Kovács János;Bp.\n").toFile();
+		File paymentsFile = Files.writeString(tempDir.resolve("payments.csv"), "payments\n").toFile();
+
+		Customer kovacs = new Customer("WS01", "A01", "Kovács János", "Bp. 1192 Kosárfonó u. 18");
+		Customer hagyma = new Customer("WS02", "A04", "Hagyma Piroska", "Bp. 1117 Tűzkő u. 48");
+		CustomerIndex customers = new CustomerIndex();
+		customers.add(CustomerIndex.keyOf("WS01", "A01"), kovacs);
+		customers.add(CustomerIndex.keyOf("WS02", "A04"), hagyma);
+		PaymentTable payments = new PaymentTable();
+		payments.add(CustomerIndex.keyOf("WS01", "A01"), "WS01", true, 1000, 18645, payments.encodeNumber(""),
+				payments.encodeNumber("5437588499034201"));
+		payments.add(CustomerIndex.keyOf("WS02", "A04"), "WS02", false, Long.MAX_VALUE, 18321,
+				payments.encodeNumber("11111111222222223333333"), payments.encodeNumber(""));
+		RejectCounters customerCounters = new RejectCounters();
+		customerCounters.add(RejectReason.VALID, 2);
+		RejectCounters paymentCounters = new RejectCounters();
+		paymentCounters.add(RejectReason.VALID, 2);
+		paymentCounters.add(RejectReason.PAYMENT_DATE, 3);
+
+		Path cacheFile = cache.cacheFileOf(customerFile, paymentsFile);
+		cache.store(cacheFile, cache.keyOf(customerFile, paymentsFile), customers, payments, customerCounters,
+				paymentCounters);
+		ValidatedDataCache.CachedData cachedData = cache.load(cacheFile, cache.keyOf(customerFile, paymentsFile));
+
+		assertEquals(customers.getCustomers(), cachedData.customers().getCustomers());
+		assertEquals("Bp. 1117 Tűzkő u. 48",
+				cachedData.customers().get(CustomerIndex.keyOf("WS02", "A04")).getAddress());
+		PaymentTable cachedPayments = cachedData.payments();
+		assertEquals(2, cachedPayments.size());
+		for (int row = 0; row < payments.size(); row++) {
+			assertEquals(payments.getCustomerKey(row), cachedPayments.getCustomerKey(row));
+			assertEquals(payments.getWebshopId(row), cachedPayments.getWebshopId(row));
+			assertEquals(payments.getType(row), cachedPayments.getType(row));
+			assertEquals(payments.getAmountPayed(row), cachedPayments.getAmountPayed(row));
+			assertEquals(payments.getEpochDayOfPayment(row), cachedPayments.getEpochDayOfPayment(row));
+			assertEquals(payments.getBankAccountNumber(row), cachedPayments.getBankAccountNumber(row));
+			assertEquals(payments.getCreditOrDebitCardNumber(row), cachedPayments.getCreditOrDebitCardNumber(row));
+		}
+		assertEquals(3, cachedData.paymentCounters().getCount(RejectReason.PAYMENT_DATE));
+		assertEquals(2, cachedData.customerCounters().getRowCount());
+
+		Files.writeString(paymentsFile.toPath(), "changed\n");
+		assertNull(cache.load(cacheFile, cache.keyOf(customerFile, paymentsFile)));
+	}
+}
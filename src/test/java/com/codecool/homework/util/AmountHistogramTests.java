@@ -0,0 +1,71 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AmountHistogramTests {
+	private static final double[] QUANTILES = {0.0, 0.01, 0.5, 0.9, 0.99, 0.999, 1.0};
+
+	@Test
+	void quantilesOfMergedChunksStayWithinThePrecision() throws IOException {
+		int precisionBits = 7;
+		Random random = new Random(42);
+		long[] amounts = new long[100_000];
+		AmountHistogram whole = new AmountHistogram(precisionBits);
+		AmountHistogram[] chunks = new AmountHistogram[8];
+		for (int chunk = 0; chunk < chunks.length; chunk++) {
+			chunks[chunk] = new AmountHistogram(precisionBits);
+		}
+		for (int i = 0; i < amounts.length; i++) {
+			// mostly small amounts with a long tail, a few refunds and extremes
+			long amount = (long) Math.exp(random.nextDouble() * 30);
+			if (i % 97 == 0) {
+				amount = -amount;
+			}
+			amounts[i] = i == 0 ? Long.MAX_VALUE : i == 1 ? Long.MIN_VALUE : amount;
+			whole.add(amounts[i]);
+			chunks[i % chunks.length].add(amounts[i]);
+		}
+		AmountHistogram merged = new AmountHistogram(precisionBits);
+		for (AmountHistogram chunk : chunks) {
+			merged.addAll(chunk);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		merged.writeTo(new DataOutputStream(bytes));
+		AmountHistogram read = AmountHistogram.readFrom(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+
+		Arrays.sort(amounts);
+		assertEquals(amounts.length, read.getCount());
+		assertEquals(Long.MIN_VALUE, read.getMin());
+		assertEquals(Long.MAX_VALUE, read.getMax());
+		for (double quantile : QUANTILES) {
+			long exact = amounts[(int) Math.max(0, Math.ceil(quantile * amounts.length) - 1)];
+			long estimate = read.getValueAtQuantile(quantile);
+			// merging adds no error, the merged histogram is the same as the one of all amounts
+			assertEquals(whole.getValueAtQuantile(quantile), estimate);
+			double relativeError = Math.abs((double) estimate - exact) / Math.max(1, Math.abs((double) exact));
+			assertTrue(relativeError <= 1.0 / (1 << precisionBits),
+					"quantile " + quantile + ": " + estimate + " instead of " + exact);
+		}
+	}
+
+	@Test
+	void rejectsPrecisionOutsideTheDenseBucketLimits() {
+		assertEquals(AmountHistogram.MAX_PRECISION_BITS, new AmountHistogram(AmountHistogram.MAX_PRECISION_BITS)
+				.getPrecisionBits());
+		assertThrows(IllegalArgumentException.class, () -> new AmountHistogram(AmountHistogram.MAX_PRECISION_BITS + 1));
+		assertThrows(IllegalArgumentException.class, () -> new AmountHistogram(AmountHistogram.MIN_PRECISION_BITS - 1));
+	}
+}
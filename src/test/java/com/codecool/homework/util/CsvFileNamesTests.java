@@ -0,0 +1,21 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvFileNamesTests {
+
+	@Test
+	void stripsCsvExtensionsFromBaseName() {
+		assertEquals("payments", CsvFileNames.baseName(Path.of("inbox", "payments.csv")));
+		assertEquals("payments", CsvFileNames.baseName(Path.of("payments.csv.gz")));
+		assertEquals("payments.txt", CsvFileNames.baseName(Path.of("payments.txt")));
+		assertTrue(CsvFileNames.isCsv("payments.csv.gz"));
+		assertFalse(CsvFileNames.isCsv("payments.gz"));
+	}
+}
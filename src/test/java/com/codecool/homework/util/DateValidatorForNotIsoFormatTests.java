@@ -0,0 +1,27 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DateValidatorForNotIsoFormatTests {
+	@Test
+	void convertsDatesToEpochDays() {
+		DateValidatorForNotIsoFormat dateValidator = new DateValidatorForNotIsoFormat();
+		for (LocalDate date = LocalDate.of(1999, 12, 1); date.getYear() < 2025; date = date.plusDays(1)) {
+			String formatted = String.format("%04d.%02d.%02d", date.getYear(), date.getMonthValue(),
+					date.getDayOfMonth());
+			assertEquals(date.toEpochDay(), dateValidator.toEpochDay(formatted));
+			// the second time from the cache
+			assertEquals(date.toEpochDay(), dateValidator.toEpochDay(formatted));
+			assertEquals(formatted, DateValidatorForNotIsoFormat.format((int) date.toEpochDay()));
+		}
+		assertEquals(LocalDate.of(2021, 1, 1).toEpochDay(), dateValidator.toEpochDay("20210101"));
+		assertEquals(DateValidatorForNotIsoFormat.INVALID_DATE, dateValidator.toEpochDay("2021.02.29"));
+		assertEquals(DateValidatorForNotIsoFormat.INVALID_DATE, dateValidator.toEpochDay("2021.01.1"));
+		assertEquals(DateValidatorForNotIsoFormat.INVALID_DATE, dateValidator.toEpochDay("0000.00.00"));
+		assertEquals(DateValidatorForNotIsoFormat.INVALID_DATE, dateValidator.toEpochDay("2021-01-01"));
+	}
+}
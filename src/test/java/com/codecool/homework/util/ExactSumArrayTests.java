@@ -0,0 +1,28 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExactSumArrayTests {
+
+	@Test
+	void switchesToBigIntegerOnlyForOverflowingSlot() {
+		ExactSumArray sums = new ExactSumArray(2);
+		sums.add(0, Long.MAX_VALUE);
+		sums.add(0, 10);
+		sums.add(0, -5);
+		sums.add(1, 2199);
+		sums.add(1, -987);
+
+		assertFalse(sums.fitsInLong(0));
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(5)), sums.get(0));
+		assertTrue(sums.fitsInLong(1));
+		assertEquals(1212, sums.getLong(1));
+		assertEquals(BigInteger.valueOf(1212), sums.get(1));
+	}
+}
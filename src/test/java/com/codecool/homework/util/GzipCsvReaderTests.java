@@ -0,0 +1,67 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class GzipCsvReaderTests {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void readsRowsAcrossBlocks() throws IOException {
+		Path file = tempDir.resolve("customer.csv.gz");
+		try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file))) {
+			output.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+			output.write(("WS01;A01;Kovács János;Bp. 1192 Kosárfonó u. 18\r\n"
+					+ "WS01;A04;Hagyma Piroska;Bp. 1117 Tűzkő u. 48\n"
+					+ "WS02;A03;;\n"
+					+ "WS02;A01;Nagy Ferenc;Bp. 1191 Toldi u. 7").getBytes(StandardCharsets.UTF_8));
+		}
+		List<String> lines = new ArrayList<>();
+		long rowCount = new GzipCsvReader(16).forEachRow(file, row -> lines.add(row.getLine()));
+
+		assertEquals(4, rowCount);
+		assertEquals(List.of("WS01;A01;Kovács János;Bp. 1192 Kosárfonó u. 18",
+				"WS01;A04;Hagyma Piroska;Bp. 1117 Tűzkő u. 48",
+				"WS02;A03;;",
+				"WS02;A01;Nagy Ferenc;Bp. 1191 Toldi u. 7"), lines);
+	}
+
+	@Test
+	void failsOnInvalidOrTruncatedInput() throws IOException {
+		Path notGzip = Files.writeString(tempDir.resolve("payments.csv.gz"), "WS01;A01;card;2199\n");
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream output = new GZIPOutputStream(compressed)) {
+			output.write("WS01;A01;card;2199;;4908366099900433;2021.01.01\n".repeat(1000)
+					.getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] bytes = compressed.toByteArray();
+		Path truncated = Files.write(tempDir.resolve("truncated.csv.gz"), Arrays.copyOf(bytes, bytes.length / 2));
+
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			assertThrows(IOException.class, () -> new GzipCsvReader(16).forEachRow(notGzip, row -> {
+			}));
+			assertThrows(IOException.class, () -> new GzipCsvReader(16).forEachRow(truncated, row -> {
+			}));
+		});
+		// the failed reads closed the files, so they can be deleted on every platform
+		Files.delete(notGzip);
+		Files.delete(truncated);
+	}
+}
@@ -0,0 +1,22 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonTests {
+
+	@Test
+	void escapesQuotesBackslashesAndControlCharacters() {
+		assertEquals("Kiss \\\"Pisti\\\" C:\\\\input\\r\\n\\ttab\\b\\f\\u0000\\u001f",
+				Json.escape("Kiss \"Pisti\" C:\\input\r\n\ttab\b\f\u0000\u001f"));
+		assertEquals("Bp. 1192 Kosárfonó u. 18 \u2028", Json.escape("Bp. 1192 Kosárfonó u. 18 \u2028"));
+	}
+
+	@Test
+	void returnsTextWithoutSpecialCharactersAsItIs() {
+		String text = "WS01;A01;Kovács János";
+		assertSame(text, Json.escape(text));
+	}
+}
@@ -0,0 +1,70 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LuhnCheckerTests {
+
+	@Test
+	void vectorAndScalarCheckersRejectTheSameNumbers() {
+		List<String> cardNumbers = new ArrayList<>(List.of("4908366099900433", "5437588499034201", "377947047949679",
+				"4908366099900434", "377947047949670", "49083660999O0433", "4111111111111111111"));
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < 3000; i++) {
+			StringBuilder number = new StringBuilder();
+			int length = 15 + random.nextInt(5);
+			for (int digit = 0; digit < length; digit++) {
+				number.append(random.nextInt(10));
+			}
+			cardNumbers.add(number.toString());
+		}
+		List<String> expected = new ArrayList<>();
+		for (String cardNumber : cardNumbers) {
+			if (!isValidLuhn(cardNumber)) {
+				expected.add(cardNumber);
+			}
+		}
+
+		assertEquals(List.of("4908366099900434", "377947047949670", "49083660999O0433"), expected.subList(0, 3));
+		assertEquals(expected, failingNumbers(new ScalarLuhnChecker(), cardNumbers));
+		assertEquals(expected, failingNumbers(new VectorLuhnChecker(), cardNumbers));
+	}
+
+	private static List<String> failingNumbers(LuhnChecker checker, List<String> cardNumbers) {
+		CardNumberBatch batch = new CardNumberBatch(checker);
+		CsvRow row = new CsvRow();
+		List<String> failing = new ArrayList<>();
+		for (int i = 0; i < cardNumbers.size(); i++) {
+			byte[] line = ("card;" + cardNumbers.get(i)).getBytes(StandardCharsets.US_ASCII);
+			row.reset(ByteBuffer.wrap(line), 0, line.length, i + 1);
+			batch.add(row, 1, i);
+			if (batch.isFull()) {
+				batch.check(tag -> failing.add(cardNumbers.get((int) tag)));
+			}
+		}
+		batch.check(tag -> failing.add(cardNumbers.get((int) tag)));
+		return failing;
+	}
+
+	private static boolean isValidLuhn(String cardNumber) {
+		int sum = 0;
+		for (int i = 0; i < cardNumber.length(); i++) {
+			int digit = Character.digit(cardNumber.charAt(cardNumber.length() - 1 - i), 10);
+			if (digit < 0) {
+				return false;
+			}
+			if (i % 2 == 1) {
+				digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+			}
+			sum += digit;
+		}
+		return sum % 10 == 0;
+	}
+}
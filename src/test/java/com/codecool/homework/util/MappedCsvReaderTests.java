@@ -0,0 +1,62 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedCsvReaderTests {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void readsRowsAcrossWindowsAsUtf8() throws IOException {
+		Path file = tempDir.resolve("customer.csv");
+		Files.writeString(file, "WS01;A01;Kovács János;Bp. 1192 Kosárfonó u. 18\r\n"
+				+ "WS01;A04;Hagyma Piroska;Bp. 1117 Tűzkő u. 48\n"
+				+ "WS02;A03;;\n"
+				+ "WS02;A01;Nagy Ferenc;Bp. 1191 Toldi u. 7", StandardCharsets.UTF_8);
+		List<List<String>> rows = new ArrayList<>();
+		long rowCount = new MappedCsvReader(64).forEachRow(file, row -> rows.add(row.toList()));
+
+		assertEquals(4, rowCount);
+		assertEquals(List.of("WS01", "A01", "Kovács János", "Bp. 1192 Kosárfonó u. 18"), rows.get(0));
+		assertEquals(List.of("WS01", "A04", "Hagyma Piroska", "Bp. 1117 Tűzkő u. 48"), rows.get(1));
+		assertEquals(List.of("WS02", "A03"), rows.get(2));
+		assertEquals(List.of("WS02", "A01", "Nagy Ferenc", "Bp. 1191 Toldi u. 7"), rows.get(3));
+	}
+
+	@Test
+	void exposesFieldsAsSlices() throws IOException {
+		Path file = tempDir.resolve("payments.csv");
+		Files.writeString(file, "WS01;A01;card;2199;;4908366099900433;2021.01.01\n", StandardCharsets.UTF_8);
+		new MappedCsvReader().forEachRow(file, row -> {
+			assertEquals(7, row.getFieldCount());
+			assertEquals(4, row.getFieldLength(3));
+			assertTrue(row.isFieldEmpty(4));
+			assertTrue(row.fieldEquals(2, "card".getBytes(StandardCharsets.US_ASCII)));
+			assertEquals("WS01;A01;card;2199;;4908366099900433;2021.01.01", row.getLine());
+		});
+	}
+
+	@Test
+	void findsEndOfLastCompleteLine() throws IOException {
+		Path file = tempDir.resolve("payments.csv");
+		Files.writeString(file, "WS01;A01;card;2199\nWS01;A02;card;", StandardCharsets.UTF_8);
+		assertEquals(19, new MappedCsvReader().endOfLastCompleteLine(file));
+
+		Files.writeString(file, "WS01;A01;card;2199\nWS01;A02;card;100\n", StandardCharsets.UTF_8);
+		assertEquals(Files.size(file), new MappedCsvReader().endOfLastCompleteLine(file));
+
+		Files.writeString(file, "WS01;A01;card;2199", StandardCharsets.UTF_8);
+		assertEquals(0, new MappedCsvReader().endOfLastCompleteLine(file));
+	}
+}
@@ -0,0 +1,45 @@
+package com.codecool.homework.util;
+
+import com.codecool.homework.model.RejectReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RejectSinkTests {
+	private static final Logger LOGGER = Logger.getLogger(RejectSinkTests.class.getName());
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void keepsEveryRejectOfAnInterruptedThread() throws IOException {
+		Path rejectsFile = tempDir.resolve("rejects.csv");
+		boolean interruptedAfterRejects;
+		boolean interruptedAfterClose;
+		try (RejectSink rejects = new RejectSink(rejectsFile, 1, 0, LOGGER)) {
+			// the buffer of one reject is full most of the time, so putting it waits while interrupted
+			Thread.currentThread().interrupt();
+			for (int row = 1; row <= 1000; row++) {
+				rejects.reject("payments.csv", row, RejectReason.PAYMENT_DATE, "row " + row);
+			}
+			interruptedAfterRejects = Thread.currentThread().isInterrupted();
+			rejects.close();
+			interruptedAfterClose = Thread.interrupted();
+		}
+
+		assertTrue(interruptedAfterRejects);
+		assertTrue(interruptedAfterClose);
+		List<String> lines = Files.readAllLines(rejectsFile, StandardCharsets.UTF_8);
+		assertEquals(1000, lines.size());
+		assertEquals("payments.csv;1000;PAYMENT_DATE;row 1000", lines.get(999));
+	}
+}
@@ -0,0 +1,53 @@
+package com.codecool.homework.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKSelectorTests {
+	// highest sum first, ties ordered by id, the way the top customers are ranked
+	private static final Comparator<Ranked> BY_SUM_DESCENDING = Comparator
+			.comparingLong(Ranked::sum).reversed()
+			.thenComparingInt(Ranked::id);
+
+	@Test
+	void ordersTiesByIdRegardlessOfOfferOrder() {
+		List<Ranked> expected = List.of(new Ranked(2, 300), new Ranked(1, 100), new Ranked(3, 100));
+
+		assertEquals(expected, select(3, List.of(new Ranked(4, 100), new Ranked(2, 300), new Ranked(3, 100),
+				new Ranked(1, 100), new Ranked(5, 50))));
+		assertEquals(expected, select(3, List.of(new Ranked(5, 50), new Ranked(1, 100), new Ranked(3, 100),
+				new Ranked(2, 300), new Ranked(4, 100))));
+	}
+
+	@Test
+	void keepsNothingForZeroK() {
+		assertEquals(List.of(), select(0, List.of(new Ranked(1, 100), new Ranked(2, 200))));
+	}
+
+	@Test
+	void keepsAllElementsInOrderForKAboveTheirNumber() {
+		List<Ranked> elements = List.of(new Ranked(2, 100), new Ranked(1, 200), new Ranked(3, 100));
+
+		assertEquals(List.of(new Ranked(1, 200), new Ranked(2, 100), new Ranked(3, 100)),
+				select(Integer.MAX_VALUE, elements));
+	}
+
+	@Test
+	void rejectsNegativeK() {
+		assertThrows(IllegalArgumentException.class, () -> new TopKSelector<>(-1, BY_SUM_DESCENDING));
+	}
+
+	private static List<Ranked> select(int k, List<Ranked> elements) {
+		TopKSelector<Ranked> selector = new TopKSelector<>(k, BY_SUM_DESCENDING);
+		elements.forEach(selector::offer);
+		return selector.getResult();
+	}
+
+	private record Ranked(int id, long sum) {
+	}
+}